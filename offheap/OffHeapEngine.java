@@ -0,0 +1,19 @@
+import java.lang.foreign.Arena;
+
+/**
+ * DifferentialHarness adapter for a model playing on an OffHeapMinefield. It lives with OffHeapMinefield because it
+ * needs the preview foreign memory API, the harness loads it by name when it's on the class path.
+ * @author Jason Wu
+ *
+ */
+class OffHeapEngine extends DifferentialHarness.ModelEngine {
+	OffHeapEngine() {
+		super("OffHeapMinefield");
+	}
+
+	@Override
+	protected void setMineField(difficulty difficulty) {
+		int[] size = DifferentialHarness.SIZES[difficulty.ordinal()];
+		model.setMineField(new OffHeapMinefield(size[0], size[1], size[2], Arena.ofAuto()));
+	}
+}
@@ -0,0 +1,263 @@
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Mine field that keeps its cells outside the Java heap, one byte per cell in a memory segment, for giant custom
+ * boards. Memory comes from an arena or a memory-mapped file, so the garbage collector never scans the board.
+ * The accessors that take a row and column read and write the segment directly and allocate nothing, they're what
+ * loops should use. No Cell object is kept per cell: getCell hands out a new cursor for the occasional caller that
+ * wants one, and a caller that wants Cell objects in a loop moves one cursor from newCursor instead.
+ * Boards are limited to 2^31 - 1 cells like every other mine field, since the model, BoardMetrics, and getCodes
+ * index cells with ints.
+ * @author Jason Wu
+ *
+ */
+public class OffHeapMinefield extends Minefield {
+	private final MemorySegment CELLS;  // same layout as Minefield.pack
+	private final long NUM_ROWS;
+	private final long NUM_COLS;
+
+	/**
+	 * Constructs an empty mine field in memory allocated from an arena, freed when the arena is closed.
+	 * @param numRows Number of rows.
+	 * @param numCols Number of columns.
+	 * @param numMines Number of mines.
+	 * @param arena Arena to allocate from.
+	 */
+	public OffHeapMinefield(int numRows, int numCols, int numMines, Arena arena) {
+		super(numRows, numCols, numMines, false);
+		checkSize(numRows, numCols);
+		CELLS = arena.allocate((long) numRows * numCols);  // arenas hand out zeroed memory, which is all hidden cells
+		NUM_ROWS = numRows;
+		NUM_COLS = numCols;
+	}
+
+	/**
+	 * Constructs a mine field backed by a memory-mapped file, so the board can also be larger than memory.
+	 * The board always starts empty, an existing file is cleared since the model can't pick up a game from it.
+	 * @param numRows Number of rows.
+	 * @param numCols Number of columns.
+	 * @param numMines Number of mines.
+	 * @param file File to map, created if it doesn't exist.
+	 * @param arena Arena that controls how long the mapping stays open.
+	 * @throws IOException If the file can't be opened or mapped.
+	 */
+	public OffHeapMinefield(int numRows, int numCols, int numMines, Path file, Arena arena) throws IOException {
+		super(numRows, numCols, numMines, false);
+		checkSize(numRows, numCols);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			CELLS = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) numRows * numCols, arena);
+		}
+		CELLS.fill((byte) 0);  // all hidden cells
+		NUM_ROWS = numRows;
+		NUM_COLS = numCols;
+	}
+
+	/**
+	 * Gets a new cursor for a specified location, reads and writes go straight to the memory segment.
+	 * Each call allocates a cursor, loops should use the accessors that take a row and column or newCursor.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 * @return Cursor for the cell.
+	 */
+	@Override
+	public Cell getCell(int row, int col) {
+		return newCursor().moveTo(row, col);
+	}
+
+	/**
+	 * Gets a cursor that can be moved from cell to cell, so a caller going over many cells allocates only once.
+	 * @return Cursor at the top left cell.
+	 */
+	public CellCursor newCursor() {
+		return new CellCursor();
+	}
+
+	@Override
+	public buttonState getState(int row, int col) {
+		return STATES[read(getIndex(row, col)) >> STATE_SHIFT];
+	}
+
+	@Override
+	public void setState(int row, int col, buttonState state) {
+		long index = getIndex(row, col);
+		write(index, (read(index) & (MINE_BIT | DIGIT_MASK)) | (state.ordinal() << STATE_SHIFT));
+	}
+
+	@Override
+	public boolean getIsMine(int row, int col) {
+		return (read(getIndex(row, col)) & MINE_BIT) != 0;
+	}
+
+	@Override
+	public void setIsMine(int row, int col) {
+		long index = getIndex(row, col);
+		write(index, read(index) | MINE_BIT);
+	}
+
+	@Override
+	public int getNumNeighboringMines(int row, int col) {
+		return read(getIndex(row, col)) & DIGIT_MASK;
+	}
+
+	@Override
+	public void setNumNeighboringMines(int row, int col, int num) {
+		long index = getIndex(row, col);
+		write(index, (read(index) & ~DIGIT_MASK) | num);
+	}
+
+	/**
+	 * Copies the cells into a byte array.
+	 * @return Packed cells, row by row.
+	 */
+	@Override
+	public byte[] pack() {
+		return CELLS.toArray(ValueLayout.JAVA_BYTE);
+	}
+
+	@Override
+	public int getNeighboring(int row, int col, boolean isMine) {
+		int count = 0;
+		for (long i = Math.max(row - 1, 0); i <= Math.min(row + 1, NUM_ROWS - 1); i++) {
+			for (long j = Math.max(col - 1, 0); j <= Math.min(col + 1, NUM_COLS - 1); j++) {
+				if (!(i == row && j == col) && ((read(i * NUM_COLS + j) & MINE_BIT) != 0) == isMine) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int getNeighboring(int row, int col, int num) {
+		int count = 0;
+		for (long i = Math.max(row - 1, 0); i <= Math.min(row + 1, NUM_ROWS - 1); i++) {
+			for (long j = Math.max(col - 1, 0); j <= Math.min(col + 1, NUM_COLS - 1); j++) {
+				if (!(i == row && j == col) && (read(i * NUM_COLS + j) & DIGIT_MASK) == num) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int getNeighboring(int row, int col, buttonState state) {
+		int count = 0;
+		for (long i = Math.max(row - 1, 0); i <= Math.min(row + 1, NUM_ROWS - 1); i++) {
+			for (long j = Math.max(col - 1, 0); j <= Math.min(col + 1, NUM_COLS - 1); j++) {
+				if (!(i == row && j == col) && (read(i * NUM_COLS + j) >> STATE_SHIFT) == state.ordinal()) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int getNeighboring(int row, int col, int num, buttonState state) {
+		int count = 0;
+		for (long i = Math.max(row - 1, 0); i <= Math.min(row + 1, NUM_ROWS - 1); i++) {
+			for (long j = Math.max(col - 1, 0); j <= Math.min(col + 1, NUM_COLS - 1); j++) {
+				int data = read(i * NUM_COLS + j);
+				if (!(i == row && j == col) && (data >> STATE_SHIFT) == state.ordinal() && (data & DIGIT_MASK) == num) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Reads the packed byte of a cell.
+	 */
+	private int read(long index) {
+		return CELLS.get(ValueLayout.JAVA_BYTE, index) & 0xFF;
+	}
+
+	/*
+	 * Writes the packed byte of a cell.
+	 */
+	private void write(long index, int data) {
+		CELLS.set(ValueLayout.JAVA_BYTE, index, (byte) data);
+	}
+
+	/*
+	 * Throws if a board has more cells than an int can index.
+	 */
+	private static void checkSize(int numRows, int numCols) {
+		if ((long) numRows * numCols > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(numRows + "x" + numCols
+					+ " is more than the 2^31 - 1 cells a board can have");
+		}
+	}
+
+	/*
+	 * Gets the index of a cell in the segment. The grid version throws for cells off the board, so this does too.
+	 */
+	private long getIndex(int row, int col) {
+		if (row < 0 || row >= NUM_ROWS || col < 0 || col >= NUM_COLS) {
+			throw new IndexOutOfBoundsException("Cell " + row + " " + col + " is off the board");
+		}
+		return row * NUM_COLS + col;
+	}
+
+	/**
+	 * Cell that reads and writes one packed byte of the segment instead of its own fields, and can be moved to
+	 * another cell.
+	 *
+	 */
+	public class CellCursor extends Cell {
+		private long index;
+
+		private CellCursor() {
+		}
+
+		/**
+		 * Moves the cursor to another cell.
+		 * @param row Row of the cell.
+		 * @param col Column of the cell.
+		 * @return This cursor.
+		 */
+		public CellCursor moveTo(int row, int col) {
+			index = getIndex(row, col);
+			return this;
+		}
+
+		@Override
+		public boolean getIsMine() {
+			return (read(index) & MINE_BIT) != 0;
+		}
+
+		@Override
+		public void setIsMine() {
+			write(index, read(index) | MINE_BIT);
+		}
+
+		@Override
+		public int getNumNeighboringMines() {
+			return read(index) & DIGIT_MASK;
+		}
+
+		@Override
+		public void setNumNeighboringMines(int num) {
+			write(index, (read(index) & ~DIGIT_MASK) | num);
+		}
+
+		@Override
+		public buttonState getState() {
+			return STATES[read(index) >> STATE_SHIFT];
+		}
+
+		@Override
+		public void setState(buttonState state) {
+			write(index, (read(index) & (MINE_BIT | DIGIT_MASK)) | (state.ordinal() << STATE_SHIFT));
+		}
+	}
+}
@@ -0,0 +1,198 @@
+import java.util.Arrays;
+
+/**
+ * Optional assist that plays the trivial deductions around the player's moves: a number with as many hidden and
+ * flagged neighbors as its digit gets its hidden neighbors flagged, and a number with as many flags as its digit
+ * is chorded. Every cell a move changes queues the numbers around it, and the work is done in slices with a time
+ * limit, so a long chain of deductions is spread over several frames instead of blocking input.
+ * Flags are trusted like a manual chord trusts them, a wrong flag can make the assist hit a mine.
+ * Its moves aren't counted as clicks and mark the game as assisted, which keeps the game out of the statistics.
+ * @author Jason Wu
+ *
+ */
+public final class AutoAssist implements MinesweeperListener {
+	private final MinesweeperModel MODEL;
+
+	private boolean isEnabled;
+	private int numCols;
+
+	// cells to check, each queued at most once, null while the assist is off
+	private int[] queue;
+	private boolean[] isQueued;
+	private int head;
+	private int size;
+
+	/**
+	 * Constructs the assist and starts listening to the model. It starts off.
+	 * @param model Model to play on.
+	 */
+	public AutoAssist(MinesweeperModel model) {
+		MODEL = model;
+		model.addListener(this);
+	}
+
+	/**
+	 * Gets whether the assist is on.
+	 * @return True if moves queue work.
+	 */
+	public boolean isEnabled() {
+		return isEnabled;
+	}
+
+	/**
+	 * Turns the assist on or off. Turning it on queues every number already revealed, turning it off drops the queue.
+	 * @param isEnabled True to turn it on.
+	 */
+	public void setEnabled(boolean isEnabled) {
+		this.isEnabled = isEnabled;
+		reset();
+		if (isEnabled && MODEL.isMineFieldGenerated()) {
+			Minefield mineField = MODEL.getMineField();
+			for (int i = 0; i < mineField.getNumRows(); i++) {
+				for (int j = 0; j < mineField.getNumCols(); j++) {
+					add(i, j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops the queue, called when a new game starts.
+	 */
+	public void reset() {
+		head = 0;
+		size = 0;
+		if (!isEnabled) {
+			queue = null;
+			isQueued = null;
+			return;
+		}
+
+		numCols = MODEL.getNumCols();
+		int numCells = MODEL.getNumRows() * numCols;
+		if (queue == null || queue.length != numCells) {
+			queue = new int[numCells];
+			isQueued = new boolean[numCells];
+		} else {
+			Arrays.fill(isQueued, false);
+		}
+	}
+
+	/**
+	 * Gets whether there are cells left to check.
+	 * @return True if run has work to do.
+	 */
+	public boolean hasWork() {
+		return size > 0;
+	}
+
+	/**
+	 * Checks queued cells and makes the moves they allow until the queue is empty, the time is up, or the game ends.
+	 * Moves fire model events as usual, which queue the cells around them. The queue is dropped when the game ends.
+	 * @param deadline System.nanoTime() to stop at.
+	 * @return Number of moves made.
+	 */
+	public int run(long deadline) {
+		int numMoves = 0;
+		int numChecked = 0;
+		while (size > 0 && MODEL.getGameState() == gameState.PLAYING) {
+			int cell = queue[head];
+			head = head + 1 == queue.length ? 0 : head + 1;
+			size--;
+			isQueued[cell] = false;
+			int cellMoves = check(cell / numCols, cell % numCols);
+			numMoves += cellMoves;
+
+			// the clock is read after every move and every few checks, most cells allow no move and are quick to check
+			if ((cellMoves > 0 || (++numChecked & 15) == 0) && System.nanoTime() >= deadline) {
+				break;
+			}
+		}
+		if (MODEL.getGameState() != gameState.PLAYING) {
+			reset();  // nothing left to do once the game is over
+		}
+		return numMoves;
+	}
+
+	/**
+	 * Queues the numbers around every cell the move revealed or flagged. Removing a flag queues nothing, so the
+	 * assist doesn't put back a flag the player just took off.
+	 */
+	@Override
+	public void modelChanged(ModelEventBatch events) {
+		if (!isEnabled) {
+			return;
+		}
+		for (int i = 0; i < events.size(); i++) {
+			int row = events.getRow(i);
+			if (row < 0) {
+				continue;
+			}
+			switch (events.getType(i)) {
+			case CELL_REVEALED:
+			case FLAGGED:
+				int col = events.getCol(i);
+				for (int j = Math.max(row - 1, 0); j <= Math.min(row + 1, MODEL.getNumRows() - 1); j++) {
+					for (int k = Math.max(col - 1, 0); k <= Math.min(col + 1, numCols - 1); k++) {
+						add(j, k);
+					}
+				}
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/*
+	 * Makes the move a number allows, if any. Returns the number of moves made.
+	 */
+	private int check(int row, int col) {
+		Minefield mineField = MODEL.getMineField();
+		int digit = mineField.getNumNeighboringMines(row, col);
+		if (mineField.getState(row, col) != buttonState.REVEALED || digit == 0) {
+			return 0;
+		}
+
+		int numHidden = mineField.getNeighboring(row, col, buttonState.HIDDEN);
+		if (numHidden == 0) {
+			return 0;
+		}
+		int numFlags = mineField.getNeighboring(row, col, buttonState.FLAG);
+		if (numFlags == digit) {
+			MODEL.revealAssisted(row, col);  // chord
+			return 1;
+		}
+		if (numFlags + numHidden != digit) {
+			return 0;
+		}
+
+		// every hidden neighbor has to be a mine
+		int numMoves = 0;
+		for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, mineField.getNumRows() - 1); i++) {
+			for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, mineField.getNumCols() - 1); j++) {
+				if (mineField.getState(i, j) == buttonState.HIDDEN) {
+					MODEL.placeAssistedFlag(i, j);
+					numMoves++;
+				}
+			}
+		}
+		return numMoves;
+	}
+
+	/*
+	 * Queues a revealed number unless it's already queued.
+	 */
+	private void add(int row, int col) {
+		Minefield mineField = MODEL.getMineField();
+		int index = row * numCols + col;
+		if (isQueued[index] || mineField.getState(row, col) != buttonState.REVEALED
+				|| mineField.getNumNeighboringMines(row, col) == 0) {
+			return;
+		}
+		isQueued[index] = true;
+		int tail = head + size;
+		queue[tail >= queue.length ? tail - queue.length : tail] = index;
+		size++;
+	}
+}
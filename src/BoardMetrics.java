@@ -0,0 +1,141 @@
+/**
+ * Standard difficulty metrics of a generated mine field: 3BV (minimum clicks to win), openings, and islands.
+ * Computed in one pass over the grid with union-find, so it stays linear in the number of cells.
+ * @author Jason Wu
+ *
+ */
+public class BoardMetrics {
+	private static final byte MINE = 0;
+	private static final byte EMPTY = 1;  // no neighboring mines
+	private static final byte NUMBER = 2;  // number cell next to an empty cell, revealed by that opening
+	private static final byte ISOLATED = 3;  // number cell that has to be clicked on its own
+
+	private final int BBBV;
+	private final int NUM_OPENINGS;
+	private final int NUM_ISLANDS;
+
+	/**
+	 * Computes the metrics of a mine field, the number field must already be generated.
+	 * @param mineField Mine field to measure.
+	 */
+	public BoardMetrics(Minefield mineField) {
+		int numRows = mineField.getNumRows();
+		int numCols = mineField.getNumCols();
+
+		byte[] types = new byte[numRows * numCols];
+		int[] parent = new int[numRows * numCols];
+		int numIsolated = 0;
+
+		for (int i = 0; i < numRows; i++) {
+			for (int j = 0; j < numCols; j++) {
+				int index = i * numCols + j;
+				parent[index] = index;
+
+				if (mineField.getIsMine(i, j)) {
+					types[index] = MINE;
+					continue;
+				} else if (mineField.getNumNeighboringMines(i, j) == 0) {
+					types[index] = EMPTY;
+				} else if (hasEmptyNeighbor(mineField, i, j)) {
+					types[index] = NUMBER;
+					continue;
+				} else {
+					types[index] = ISOLATED;
+					numIsolated++;
+				}
+
+				// join with the already visited neighbors of the same type (left, and the three above)
+				if (j > 0 && types[index - 1] == types[index]) {
+					union(parent, index, index - 1);
+				}
+				if (i > 0) {
+					for (int k = Math.max(j - 1, 0); k <= Math.min(j + 1, numCols - 1); k++) {
+						int above = index - numCols + k - j;
+						if (types[above] == types[index]) {
+							union(parent, index, above);
+						}
+					}
+				}
+			}
+		}
+
+		int numOpenings = 0;
+		int numIslands = 0;
+		for (int index = 0; index < parent.length; index++) {
+			if (parent[index] == index) {
+				if (types[index] == EMPTY) {
+					numOpenings++;
+				} else if (types[index] == ISOLATED) {
+					numIslands++;
+				}
+			}
+		}
+
+		// each opening is one click, every number not revealed by an opening is one click
+		BBBV = numOpenings + numIsolated;
+		NUM_OPENINGS = numOpenings;
+		NUM_ISLANDS = numIslands;
+	}
+
+	/**
+	 * Gets the 3BV of the board, the minimum number of clicks needed to win without flagging.
+	 * @return 3BV.
+	 */
+	public int get3BV() {
+		return BBBV;
+	}
+
+	/**
+	 * Gets the number of openings, connected areas of cells without neighboring mines.
+	 * @return Number of openings.
+	 */
+	public int getNumOpenings() {
+		return NUM_OPENINGS;
+	}
+
+	/**
+	 * Gets the number of islands, connected groups of number cells that no opening reveals.
+	 * @return Number of islands.
+	 */
+	public int getNumIslands() {
+		return NUM_ISLANDS;
+	}
+
+	/*
+	 * Checks if any surrounding cell is empty (no mine and no neighboring mines).
+	 */
+	private static boolean hasEmptyNeighbor(Minefield mineField, int row, int col) {
+		for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, mineField.getNumRows() - 1); i++) {
+			for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, mineField.getNumCols() - 1); j++) {
+				if (!mineField.getIsMine(i, j) && mineField.getNumNeighboringMines(i, j) == 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Finds the root of a set, halving the path on the way up.
+	 */
+	private static int find(int[] parent, int index) {
+		while (parent[index] != index) {
+			parent[index] = parent[parent[index]];
+			index = parent[index];
+		}
+		return index;
+	}
+
+	/*
+	 * Joins two sets, the smaller root becomes the parent.
+	 */
+	private static void union(int[] parent, int a, int b) {
+		int rootA = find(parent, a);
+		int rootB = find(parent, b);
+		if (rootA < rootB) {
+			parent[rootB] = rootA;
+		} else if (rootB < rootA) {
+			parent[rootA] = rootB;
+		}
+	}
+}
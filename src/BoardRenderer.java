@@ -0,0 +1,503 @@
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders boards to PNG without a window, using the same tile art as the game. Boards are drawn in strips of
+ * rows that are rendered and compressed in parallel and written in order as they finish, so only a few strips
+ * are ever in memory however big the board is. Replays from a FrameEncoder stream are written as animated PNGs,
+ * where each frame only holds the cells that changed.
+ * Usage: java BoardRenderer [rows] [cols] [mines] [cell size] [threads] [output directory]
+ * @author Jason Wu
+ *
+ */
+public class BoardRenderer {
+	private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	private static final int STRIP_PIXELS = 1 << 20;  // about how many pixels a strip has, 4 MB as an image
+
+	// state each visible code is drawn as, the digit is the code itself
+	private static final buttonState[] CODE_STATES = {
+			buttonState.REVEALED, buttonState.REVEALED, buttonState.REVEALED, buttonState.REVEALED,
+			buttonState.REVEALED, buttonState.REVEALED, buttonState.REVEALED, buttonState.REVEALED,
+			buttonState.REVEALED, buttonState.HIDDEN, buttonState.FLAG, buttonState.MINE
+	};
+
+	private final TileAtlas ATLAS;
+	private final ForkJoinPool POOL;
+	private final int CELL_SIZE;
+
+	/**
+	 * Constructs a renderer with the game's flag and mine images.
+	 * @param cellSize Width and height of a cell in pixels.
+	 * @param pool Pool to render strips on, or null to render them on the calling thread.
+	 */
+	public BoardRenderer(int cellSize, ForkJoinPool pool) {
+		CELL_SIZE = Math.max(cellSize, 1);
+		POOL = pool;
+		ATLAS = new TileAtlas(loadImage("flag.png"), loadImage("mine.png"), CELL_SIZE);
+	}
+
+	/**
+	 * Renders a whole board into one image, meant for thumbnails and other small boards.
+	 * @param mineField Board to render.
+	 * @return Image of the board.
+	 */
+	public BufferedImage render(Minefield mineField) {
+		BufferedImage image = new BufferedImage(mineField.getNumCols() * CELL_SIZE, mineField.getNumRows() * CELL_SIZE,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		new Strip(mineField, null, mineField.getNumCols(), 0, 0, mineField.getNumRows(), mineField.getNumCols(), true)
+				.draw(g);
+		g.dispose();
+		return image;
+	}
+
+	/**
+	 * Writes a board as a PNG, strip by strip, without ever holding the whole image.
+	 * The board must not change while it's written.
+	 * @param mineField Board to render.
+	 * @param out Stream to write to, left open.
+	 * @throws IOException If writing fails.
+	 */
+	public void writePng(Minefield mineField, OutputStream out) throws IOException {
+		int numRows = mineField.getNumRows();
+		int numCols = mineField.getNumCols();
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.write(PNG_SIGNATURE);
+		writeHeader(data, numCols * CELL_SIZE, numRows * CELL_SIZE);
+		writeImageData(data, "IDAT", 0, mineField, null, numCols, 0, 0, numRows, numCols);
+		writeChunk(data, "IEND", new byte[0], 0);
+		data.flush();
+	}
+
+	/**
+	 * Writes one game from a FrameEncoder stream as an animated PNG, one animation frame per stream frame.
+	 * Stops at the end of the stream or at the keyframe that starts the next game. Each frame only looks at the
+	 * cells its delta set, the whole board is only compared for the occasional keyframe.
+	 * @param frames Stream of frames starting with a keyframe.
+	 * @param file File to write.
+	 * @param frameDelay How long each frame shows in milliseconds.
+	 * @return Number of frames written.
+	 * @throws IOException If the stream can't be read or the file can't be written.
+	 */
+	public int writeReplay(InputStream frames, File file, int frameDelay) throws IOException {
+		FrameDecoder decoder = new FrameDecoder(frames);
+		while (!decoder.hasKeyframe()) {
+			if (!decoder.readFrame()) {
+				throw new IOException("Stream has no keyframe");
+			}
+		}
+		int numRows = decoder.getNumRows();
+		int numCols = decoder.getNumCols();
+		byte[] codes = decoder.getCodes();  // the board the animation shows so far
+
+		int numFrames = 0;
+		long countPosition;
+		try (FileOutputStream fileOut = new FileOutputStream(file)) {
+			DataOutputStream data = new DataOutputStream(new BufferedOutputStream(fileOut));
+			data.write(PNG_SIGNATURE);
+			writeHeader(data, numCols * CELL_SIZE, numRows * CELL_SIZE);
+
+			// the frame count isn't known until the end, it's filled in afterwards
+			countPosition = data.size() + 8;
+			writeChunk(data, "acTL", new byte[8], 8);
+
+			// the first frame is the whole board and doubles as the still image for viewers without animation
+			int sequenceNumber = writeFrameControl(data, 0, 0, 0, numRows, numCols, frameDelay);
+			sequenceNumber = writeImageData(data, "IDAT", sequenceNumber, null, codes, numCols, 0, 0, numRows, numCols);
+			numFrames++;
+
+			while (decoder.readFrame()) {
+				if (decoder.isNewGame() || decoder.getNumRows() != numRows || decoder.getNumCols() != numCols) {
+					break;
+				}
+
+				// bounds of the changed cells, an unchanged frame just repeats the first cell
+				int top = numRows;
+				int left = numCols;
+				int bottom = -1;
+				int right = -1;
+				boolean isKeyframe = decoder.isKeyframe();
+				int numChanged = isKeyframe ? codes.length : decoder.getNumChanged();
+				for (int i = 0; i < numChanged; i++) {
+					int cell = isKeyframe ? i : decoder.getChanged(i);
+					int row = cell / numCols;
+					int col = cell % numCols;
+					byte code = (byte) decoder.getCode(row, col);
+					if (code != codes[cell]) {
+						codes[cell] = code;
+						top = Math.min(top, row);
+						bottom = Math.max(bottom, row);
+						left = Math.min(left, col);
+						right = Math.max(right, col);
+					}
+				}
+				if (bottom == -1) {
+					top = left = bottom = right = 0;
+				}
+
+				sequenceNumber = writeFrameControl(data, sequenceNumber, top, left, bottom - top + 1, right - left + 1,
+						frameDelay);
+				sequenceNumber = writeImageData(data, "fdAT", sequenceNumber, null, codes, numCols, top, left,
+						bottom - top + 1, right - left + 1);
+				numFrames++;
+			}
+			writeChunk(data, "IEND", new byte[0], 0);
+			data.flush();
+		}
+
+		byte[] control = new byte[8];
+		writeInt(control, 0, numFrames);  // and 0 plays, which loops forever
+		try (RandomAccessFile patch = new RandomAccessFile(file, "rw")) {
+			patch.seek(countPosition);
+			patch.write(control);
+			patch.writeInt(getChunkCrc("acTL", control, control.length));
+		}
+		return numFrames;
+	}
+
+	/**
+	 * Plays a random game on a board, then writes the final board as a PNG and the game as an animated PNG,
+	 * printing how long each took.
+	 * @param args Optional rows, columns, mines, cell size, threads, and output directory.
+	 * @throws IOException If a file can't be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int numCols = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int numMines = args.length > 2 ? Integer.parseInt(args[2]) : numRows * numCols / 8;
+		int cellSize = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		File directory = new File(args.length > 5 ? args[5] : ".");
+
+		// play until the first mine, streaming every move like a spectator would see it
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		MinesweeperModel model = new MinesweeperModel();
+		model.setMineField(new Minefield(numRows, numCols, numMines));
+		model.setSeed(1);
+		FrameEncoder encoder = new FrameEncoder(model, stream, 64);  // same interval as StreamBenchmark, mostly deltas
+		encoder.writeKeyframe();
+		Random random = new Random(1);
+		model.generateMineField(numRows / 2, numCols / 2);
+		model.generateNumField();
+		model.reveal(numRows / 2, numCols / 2);
+		while (model.getGameState() == gameState.PLAYING) {
+			model.reveal(random.nextInt(numRows), random.nextInt(numCols));
+		}
+		model.revealAllMines();
+		encoder.close();
+
+		BoardRenderer renderer = new BoardRenderer(cellSize, threads > 1 ? new ForkJoinPool(threads) : null);
+		File board = new File(directory, "board.png");
+		long start = System.nanoTime();
+		try (FileOutputStream out = new FileOutputStream(board)) {
+			renderer.writePng(model.getMineField(), out);
+		}
+		double boardTime = (System.nanoTime() - start) / 1e6;
+		System.out.printf("%dx%d board, %dx%d pixels: %.0f ms, %d bytes%n", numRows, numCols, numCols * cellSize,
+				numRows * cellSize, boardTime, board.length());
+
+		File replay = new File(directory, "replay.png");
+		start = System.nanoTime();
+		int numFrames = renderer.writeReplay(new ByteArrayInputStream(stream.toByteArray()), replay, 100);
+		double replayTime = (System.nanoTime() - start) / 1e6;
+		System.out.printf("replay: %d frames in %.0f ms, %d bytes%n", numFrames, replayTime, replay.length());
+	}
+
+	/*
+	 * Writes the compressed pixels of a block of cells as IDAT chunks, or as fdAT chunks of an animation frame.
+	 * Strips are rendered and compressed on the pool, at most two per thread at once, and their raw deflate
+	 * output is joined into one zlib stream. Returns the next sequence number, only fdAT chunks use them up.
+	 */
+	private int writeImageData(DataOutputStream data, String type, int sequenceNumber, Minefield mineField,
+			byte[] codes, int numCols, int top, int left, int height, int width) throws IOException {
+		int stripHeight = Math.max(STRIP_PIXELS / (width * CELL_SIZE * CELL_SIZE), 1);  // in cells
+		int numStrips = (height + stripHeight - 1) / stripHeight;
+		int maxQueued = POOL == null ? 1 : POOL.getParallelism() * 2;
+
+		ArrayDeque<ForkJoinTask<Strip>> queued = new ArrayDeque<ForkJoinTask<Strip>>();
+		int numSubmitted = 0;
+		long adler = 1;
+		boolean isFirst = true;
+		for (int i = 0; i < numStrips; i++) {
+			while (numSubmitted < numStrips && queued.size() < maxQueued) {
+				int stripTop = top + numSubmitted * stripHeight;
+				int stripBottom = Math.min(stripTop + stripHeight, top + height);
+				Strip strip = new Strip(mineField, codes, numCols, stripTop, left, stripBottom - stripTop, width,
+						numSubmitted == numStrips - 1);
+				if (POOL == null) {
+					ForkJoinTask<Strip> task = ForkJoinTask.adapt(strip);
+					task.invoke();
+					queued.add(task);
+				} else {
+					queued.add(POOL.submit(strip));
+				}
+				numSubmitted++;
+			}
+			Strip strip = queued.poll().join();
+			adler = combineAdler(adler, strip.adler, strip.numRawBytes);
+
+			// zlib header before the first strip, checksum of all the strips after the last
+			byte[] bytes = strip.compressed.toByteArray();
+			int length = bytes.length;
+			if (isFirst) {
+				byte[] withHeader = new byte[length + 2];
+				withHeader[0] = 0x78;
+				withHeader[1] = 0x01;
+				System.arraycopy(bytes, 0, withHeader, 2, length);
+				bytes = withHeader;
+				length += 2;
+				isFirst = false;
+			}
+			if (strip.isLast) {
+				byte[] withChecksum = new byte[length + 4];
+				System.arraycopy(bytes, 0, withChecksum, 0, length);
+				writeInt(withChecksum, length, (int) adler);
+				bytes = withChecksum;
+				length += 4;
+			}
+
+			if (type.equals("fdAT")) {
+				byte[] frameData = new byte[length + 4];
+				writeInt(frameData, 0, sequenceNumber++);
+				System.arraycopy(bytes, 0, frameData, 4, length);
+				writeChunk(data, type, frameData, frameData.length);
+			} else {
+				writeChunk(data, type, bytes, length);
+			}
+		}
+		return sequenceNumber;
+	}
+
+	/*
+	 * Writes the IHDR chunk for an 8 bit RGB image.
+	 */
+	private static void writeHeader(DataOutputStream data, int width, int height) throws IOException {
+		byte[] header = new byte[13];
+		writeInt(header, 0, width);
+		writeInt(header, 4, height);
+		header[8] = 8;  // bit depth
+		header[9] = 2;  // truecolor
+		writeChunk(data, "IHDR", header, header.length);
+	}
+
+	/*
+	 * Writes the fcTL chunk that places an animation frame over a block of cells. Returns the next sequence number.
+	 */
+	private int writeFrameControl(DataOutputStream data, int sequenceNumber, int top, int left, int height, int width,
+			int frameDelay) throws IOException {
+		byte[] control = new byte[26];
+		writeInt(control, 0, sequenceNumber);
+		writeInt(control, 4, width * CELL_SIZE);
+		writeInt(control, 8, height * CELL_SIZE);
+		writeInt(control, 12, left * CELL_SIZE);
+		writeInt(control, 16, top * CELL_SIZE);
+		control[20] = (byte) (frameDelay >> 8);
+		control[21] = (byte) frameDelay;
+		control[22] = (byte) (1000 >> 8);
+		control[23] = (byte) 1000;
+		// leave the frame in place and replace the pixels under it
+		writeChunk(data, "fcTL", control, control.length);
+		return sequenceNumber + 1;
+	}
+
+	/*
+	 * Writes a chunk with its length and checksum.
+	 */
+	private static void writeChunk(DataOutputStream data, String type, byte[] bytes, int length) throws IOException {
+		data.writeInt(length);
+		data.writeBytes(type);
+		data.write(bytes, 0, length);
+		data.writeInt(getChunkCrc(type, bytes, length));
+	}
+
+	/*
+	 * Gets the CRC of a chunk's type and data.
+	 */
+	private static int getChunkCrc(String type, byte[] bytes, int length) {
+		CRC32 crc = new CRC32();
+		for (int i = 0; i < type.length(); i++) {
+			crc.update(type.charAt(i));
+		}
+		crc.update(bytes, 0, length);
+		return (int) crc.getValue();
+	}
+
+	/*
+	 * Writes an int in network byte order.
+	 */
+	private static void writeInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+	/*
+	 * Gets the Adler-32 of two pieces of data joined together from the checksums of each, the same way zlib does.
+	 */
+	private static long combineAdler(long adler1, long adler2, long length2) {
+		final long BASE = 65521;
+		long remainder = length2 % BASE;
+		long sum1 = adler1 & 0xFFFF;
+		long sum2 = (remainder * sum1) % BASE;
+		sum1 += (adler2 & 0xFFFF) + BASE - 1;
+		sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + BASE - remainder;
+		sum1 %= BASE;
+		sum2 %= BASE;
+		return sum2 << 16 | sum1;
+	}
+
+	/*
+	 * Loads a tile image from next to the classes, the same place the game loads them from.
+	 */
+	private static Image loadImage(String path) {
+		java.net.URL imgURL = BoardRenderer.class.getResource(path);
+		if (imgURL == null) {
+			System.err.println("Couldn't find file: " + path);
+			return null;
+		}
+		try {
+			return ImageIO.read(imgURL);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/*
+	 * A few rows of cells rendered and compressed on their own. The first scanline has no filter so it doesn't
+	 * depend on the strip above, the rest are stored as the difference from the scanline above, which is all zeros
+	 * inside a row of tiles.
+	 */
+	private class Strip implements Callable<Strip> {
+		private final Minefield MINE_FIELD;  // drawn from when not null, otherwise the codes are
+		private final byte[] CODES;
+		private final int NUM_COLS;  // of the whole board
+		private final int TOP;
+		private final int LEFT;
+		private final int HEIGHT;  // in cells
+		private final int WIDTH;
+
+		private final boolean isLast;
+		private ByteArrayOutputStream compressed;
+		private long adler;
+		private long numRawBytes;
+
+		private Strip(Minefield mineField, byte[] codes, int numCols, int top, int left, int height, int width,
+				boolean isLast) {
+			MINE_FIELD = mineField;
+			CODES = codes;
+			NUM_COLS = numCols;
+			TOP = top;
+			LEFT = left;
+			HEIGHT = height;
+			WIDTH = width;
+			this.isLast = isLast;
+		}
+
+		@Override
+		public Strip call() {
+			int pixelWidth = WIDTH * CELL_SIZE;
+			int pixelHeight = HEIGHT * CELL_SIZE;
+			BufferedImage image = new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = image.createGraphics();
+			g.translate(-LEFT * CELL_SIZE, -TOP * CELL_SIZE);
+			draw(g);
+			g.dispose();
+			int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+			// one filter byte and three bytes a pixel per scanline
+			int lineLength = 1 + pixelWidth * 3;
+			byte[] line = new byte[lineLength];
+			Adler32 checksum = new Adler32();
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+			compressed = new ByteArrayOutputStream(pixelWidth * pixelHeight / 16 + 64);
+			byte[] buffer = new byte[1 << 16];
+
+			for (int y = 0; y < pixelHeight; y++) {
+				int offset = y * pixelWidth;
+				if (y == 0) {
+					line[0] = 0;  // none
+					for (int x = 0; x < pixelWidth; x++) {
+						int rgb = pixels[offset + x];
+						line[1 + x * 3] = (byte) (rgb >> 16);
+						line[2 + x * 3] = (byte) (rgb >> 8);
+						line[3 + x * 3] = (byte) rgb;
+					}
+				} else {
+					line[0] = 2;  // up
+					for (int x = 0; x < pixelWidth; x++) {
+						int rgb = pixels[offset + x];
+						int above = pixels[offset - pixelWidth + x];
+						line[1 + x * 3] = (byte) ((rgb >> 16) - (above >> 16));
+						line[2 + x * 3] = (byte) ((rgb >> 8) - (above >> 8));
+						line[3 + x * 3] = (byte) (rgb - above);
+					}
+				}
+				checksum.update(line, 0, lineLength);
+				deflater.setInput(line, 0, lineLength);
+				while (!deflater.needsInput()) {
+					compressed.write(buffer, 0, deflater.deflate(buffer));
+				}
+			}
+
+			// the last strip ends the deflate stream, the others end on a byte boundary so the next can follow
+			if (isLast) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					compressed.write(buffer, 0, deflater.deflate(buffer));
+				}
+			} else {
+				int length;
+				do {
+					length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					compressed.write(buffer, 0, length);
+				} while (length == buffer.length);
+			}
+			deflater.end();
+
+			adler = checksum.getValue();
+			numRawBytes = (long) lineLength * pixelHeight;
+			return this;
+		}
+
+		/*
+		 * Draws the strip's cells where they are on the whole board.
+		 */
+		private void draw(Graphics2D g) {
+			for (int i = TOP; i < TOP + HEIGHT; i++) {
+				for (int j = LEFT; j < LEFT + WIDTH; j++) {
+					if (MINE_FIELD != null) {
+						ATLAS.drawTile(g, MINE_FIELD.getState(i, j), MINE_FIELD.getNumNeighboringMines(i, j), j * CELL_SIZE,
+								i * CELL_SIZE);
+					} else {
+						int code = CODES[i * NUM_COLS + j];
+						ATLAS.drawTile(g, CODE_STATES[code], code, j * CELL_SIZE, i * CELL_SIZE);
+					}
+				}
+			}
+		}
+	}
+}
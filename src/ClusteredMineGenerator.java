@@ -0,0 +1,69 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Layout where mines bunch up around a few random centers, leaving wide open areas between them.
+ * Each center adds a bump to the weight of the cells around it that falls off with distance.
+ * @author Jason Wu
+ *
+ */
+public class ClusteredMineGenerator extends WeightedMineGenerator {
+	private final int CELLS_PER_CLUSTER;
+	private final int REACH;  // bumps are cut off at three radii, where they're about 1% of the peak
+	private final float[] BUMP;  // weight a center adds to each cell of the square around it
+
+	/**
+	 * Constructs a generator with one cluster for every 60 cells, each reaching about 1.5 cells out and making its
+	 * center 9 times as likely to be a mine as the open areas.
+	 */
+	public ClusteredMineGenerator() {
+		this(60, 1.5, 8);
+	}
+
+	/**
+	 * Constructs a generator with custom clusters.
+	 * @param cellsPerCluster Number of cells for each cluster center, at least one center is always placed.
+	 * @param radius How far a cluster reaches in cells, where its bump has fallen to about 60%.
+	 * @param strength Weight a cluster adds at its center, cells far from every cluster weigh 1.
+	 */
+	public ClusteredMineGenerator(int cellsPerCluster, double radius, double strength) {
+		CELLS_PER_CLUSTER = Math.max(cellsPerCluster, 1);
+
+		REACH = (int) Math.ceil(radius * 3);
+		int size = REACH * 2 + 1;
+		BUMP = new float[size * size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				double squaredDistance = (i - REACH) * (i - REACH) + (j - REACH) * (j - REACH);
+				BUMP[i * size + j] = (float) (strength * Math.exp(-squaredDistance / (2 * radius * radius)));
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "clustered";
+	}
+
+	@Override
+	protected float[] getWeights(int numRows, int numCols, int numMines, int startingRow, int startingCol,
+			Random random) {
+		float[] weights = new float[numRows * numCols];
+		Arrays.fill(weights, 1);
+
+		int size = REACH * 2 + 1;
+		int numClusters = Math.max(weights.length / CELLS_PER_CLUSTER, 1);
+		for (int k = 0; k < numClusters; k++) {
+			int centerRow = random.nextInt(numRows);
+			int centerCol = random.nextInt(numCols);
+			for (int i = Math.max(centerRow - REACH, 0); i <= Math.min(centerRow + REACH, numRows - 1); i++) {
+				for (int j = Math.max(centerCol - REACH, 0); j <= Math.min(centerCol + REACH, numCols - 1); j++) {
+					weights[i * numCols + j] += BUMP[(i - centerRow + REACH) * size + j - centerCol + REACH];
+				}
+			}
+		}
+
+		clearStartingArea(weights, numRows, numCols, startingRow, startingCol);
+		return weights;
+	}
+}
@@ -0,0 +1,585 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless differential test that plays random games from seeds on MinesweeperModel and every alternative engine
+ * at once, comparing what the player would see after every move. On the first difference it prints the move, the
+ * cells that differ, and a minimized list of moves that still reproduces it, then exits with status 1.
+ * New engines only need a MinesweeperEngine adapter added to createEngines. The off-heap engine is only checked
+ * when the optional offheap sources are compiled and the JVM runs with --enable-preview, see the README.
+ * Usage: java DifferentialHarness [games] [seed] [threads]
+ * @author Jason Wu
+ *
+ */
+public class DifferentialHarness {
+	private static final int MAX_MOVES = 1000;
+	private static final difficulty[] DIFFICULTIES = difficulty.values();
+	static final int[][] SIZES = getSizes();  // rows, columns, and mines of each difficulty
+
+	private static volatile boolean hasDiverged;  // stops the other threads after a divergence
+
+	private final MinesweeperEngine REFERENCE;
+	private final MinesweeperModel REFERENCE_MODEL;  // also used to pick sensible moves
+	private final MinesweeperEngine[] ENGINES;
+
+	private final byte[] EXPECTED;
+	private final byte[] ACTUAL;
+
+	/**
+	 * Constructs a harness comparing the reference model against every engine.
+	 * @param engines Alternative implementations to check.
+	 */
+	public DifferentialHarness(MinesweeperEngine... engines) {
+		ModelEngine reference = new ModelEngine("MinesweeperModel");
+		REFERENCE = reference;
+		REFERENCE_MODEL = reference.model;
+		ENGINES = engines;
+
+		int maxCells = 0;
+		for (int[] size : SIZES) {
+			maxCells = Math.max(maxCells, size[0] * size[1]);
+		}
+		EXPECTED = new byte[maxCells];
+		ACTUAL = new byte[maxCells];
+	}
+
+	/**
+	 * Runs the harness on every core, each thread with its own engines and games.
+	 * @param args Optional number of games, starting seed, and number of threads.
+	 * @throws InterruptedException If interrupted while waiting for the threads.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : new Random().nextLong();
+		int numThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		System.out.println("seed " + seed);
+
+		final boolean[] hasPassed = new boolean[numThreads];
+		Thread[] threads = new Thread[numThreads];
+		long start = System.nanoTime();
+		for (int i = 0; i < numThreads; i++) {
+			final int thread = i;
+			final int numThreadGames = numGames / numThreads + (i < numGames % numThreads ? 1 : 0);
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					hasPassed[thread] = new DifferentialHarness(createEngines()).run(numThreadGames, seed + thread);
+				}
+			});
+			threads[i].start();
+		}
+
+		boolean hasAllPassed = true;
+		for (int i = 0; i < numThreads; i++) {
+			threads[i].join();
+			hasAllPassed &= hasPassed[i];
+		}
+		if (hasAllPassed) {
+			double minutes = (System.nanoTime() - start) / 6e10;
+			System.out.printf("all engines match on %d games, %.0f games/min%n", numGames, numGames / minutes);
+		}
+		System.exit(hasAllPassed ? 0 : 1);
+	}
+
+	/**
+	 * Creates an adapter for every alternative implementation in the project.
+	 * @return Engines to check against the reference model.
+	 */
+	public static MinesweeperEngine[] createEngines() {
+		ForkJoinPool pool = new ForkJoinPool(Math.max(Runtime.getRuntime().availableProcessors(), 2));
+		ArrayList<MinesweeperEngine> engines = new ArrayList<MinesweeperEngine>();
+		engines.add(new VectorEngine());
+		MinesweeperEngine offHeap = createOffHeapEngine();
+		if (offHeap != null) {
+			engines.add(offHeap);
+		}
+		engines.add(new PagedEngine());
+		engines.add(new ParallelRevealEngine(pool, 3));  // tiny tiles so floods cross many tile edges
+		engines.add(new StreamEngine());
+		return engines.toArray(new MinesweeperEngine[engines.size()]);
+	}
+
+	/*
+	 * Loads the off-heap engine if its optional sources were compiled, it uses the preview foreign memory API so it
+	 * isn't part of the main build. Returns null if it's missing or the JVM wasn't started with --enable-preview.
+	 */
+	private static MinesweeperEngine createOffHeapEngine() {
+		try {
+			return (MinesweeperEngine) Class.forName("OffHeapEngine").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			return null;
+		} catch (UnsupportedClassVersionError e) {
+			System.err.println("OffHeapMinefield skipped, run with --enable-preview to check it");
+			return null;
+		}
+	}
+
+	/**
+	 * Plays random games until one diverges or all are done, printing progress and any divergence.
+	 * @param numGames Number of games.
+	 * @param seed Seed of the first game, the rest follow from it.
+	 * @return True if every engine matched the reference in every game.
+	 */
+	public boolean run(int numGames, long seed) {
+		Random random = new Random(seed);
+		int[] moves = new int[MAX_MOVES];
+		long numMoves = 0;
+		long start = System.nanoTime();
+
+		for (int game = 0; game < numGames && !hasDiverged; game++) {
+			difficulty difficulty = DIFFICULTIES[random.nextInt(DIFFICULTIES.length)];
+			long gameSeed = random.nextLong();
+			long moveSeed = random.nextLong();
+
+			REFERENCE.reset(difficulty, gameSeed);
+			for (MinesweeperEngine engine : ENGINES) {
+				engine.reset(difficulty, gameSeed);
+			}
+
+			// moves are picked while playing, since good moves depend on the board
+			Random moveRandom = new Random(moveSeed);
+			int count = 0;
+			while (count < MAX_MOVES && REFERENCE.getGameState() == gameState.PLAYING) {
+				int move = pickMove(moveRandom);
+				moves[count++] = move;
+				numMoves++;
+
+				apply(REFERENCE, move);
+				REFERENCE.getBoard(EXPECTED);
+				for (MinesweeperEngine engine : ENGINES) {
+					apply(engine, move);
+					String difference = compare(engine);
+					if (difference != null) {
+						hasDiverged = true;
+						report(engine, difficulty, gameSeed, Arrays.copyOf(moves, count), difference);
+						return false;
+					}
+				}
+			}
+
+			if ((game + 1) % 100000 == 0) {
+				printProgress(game + 1, numMoves, start);
+			}
+		}
+		return !hasDiverged;
+	}
+
+	/*
+	 * Picks a move: mostly safe reveals so games get long enough to win, plus random reveals and chords,
+	 * correct flags, and wrong flags. Moves are encoded like MinesweeperEnv actions.
+	 */
+	private int pickMove(Random random) {
+		int numRows = REFERENCE_MODEL.getNumRows();
+		int numCols = REFERENCE_MODEL.getNumCols();
+		int numCells = numRows * numCols;
+		int cell = random.nextInt(numCells);
+		int choice = random.nextInt(20);
+
+		if (!REFERENCE_MODEL.isMineFieldGenerated() || choice < 3) {
+			return cell;  // any cell, revealed numbers chord
+		} else if (choice < 5) {
+			return numCells + cell;  // any flag
+		}
+
+		// first hidden cell from a random start, a mine for flags and a safe cell for reveals
+		boolean isFlag = choice < 8;
+		Minefield mineField = REFERENCE_MODEL.getMineField();
+		for (int i = 0; i < numCells; i++) {
+			int index = (cell + i) % numCells;
+			int row = index / numCols;
+			int col = index % numCols;
+			if (mineField.getState(row, col) == buttonState.HIDDEN && mineField.getIsMine(row, col) == isFlag) {
+				return isFlag ? numCells + index : index;
+			}
+		}
+		return cell;
+	}
+
+	/*
+	 * Makes a move on an engine.
+	 */
+	private void apply(MinesweeperEngine engine, int move) {
+		int numCols = REFERENCE_MODEL.getNumCols();
+		int numCells = REFERENCE_MODEL.getNumRows() * numCols;
+		int cell = move % numCells;
+		if (move >= numCells) {
+			engine.placeFlag(cell / numCols, cell % numCols);
+		} else {
+			engine.reveal(cell / numCols, cell % numCols);
+		}
+	}
+
+	/*
+	 * Compares an engine against the reference board in EXPECTED, returns a description of the difference or null if they match.
+	 */
+	private String compare(MinesweeperEngine engine) {
+		StringBuilder difference = new StringBuilder();
+		if (engine.getGameState() != REFERENCE.getGameState()) {
+			difference.append(String.format("  game state: %s, expected %s%n", engine.getGameState(), REFERENCE.getGameState()));
+		}
+		if (engine.getNumFlagsLeft() != REFERENCE.getNumFlagsLeft()) {
+			difference.append(String.format("  flags left: %d, expected %d%n", engine.getNumFlagsLeft(), REFERENCE.getNumFlagsLeft()));
+		}
+
+		int numCols = REFERENCE_MODEL.getNumCols();
+		int numCells = REFERENCE_MODEL.getNumRows() * numCols;
+		engine.getBoard(ACTUAL);
+		int numShown = 0;
+		for (int i = 0; i < numCells; i++) {
+			if (EXPECTED[i] != ACTUAL[i] && numShown++ < 10) {
+				difference.append(String.format("  cell %d %d: %s, expected %s%n", i / numCols, i % numCols,
+						describeCode(ACTUAL[i]), describeCode(EXPECTED[i])));
+			}
+		}
+		if (numShown > 10) {
+			difference.append(String.format("  ... %d cells differ%n", numShown));
+		}
+		return difference.length() == 0 ? null : difference.toString();
+	}
+
+	/*
+	 * Prints the first difference and a smaller list of moves that still reproduces it.
+	 */
+	private void report(MinesweeperEngine engine, difficulty difficulty, long gameSeed, int[] moves, String difference) {
+		// one report at a time if several threads diverge together
+		synchronized (DifferentialHarness.class) {
+			System.out.printf("%s differs from %s after move %d (%s) of a %s game with seed %d:%n%s", engine.getName(),
+					REFERENCE.getName(), moves.length, describeMove(moves[moves.length - 1], difficulty),
+					difficulty, gameSeed, difference);
+
+			int[] minimized = minimize(engine, difficulty, gameSeed, moves);
+			System.out.printf("Reproduced with %d moves on the same difficulty and seed:%n", minimized.length);
+			for (int move : minimized) {
+				System.out.println("  " + describeMove(move, difficulty));
+			}
+			replay(engine, difficulty, gameSeed, minimized);
+			System.out.print(compare(engine));
+		}
+	}
+
+	/*
+	 * Delta debugging: keeps removing chunks of moves while the engines still differ, halving the chunk size
+	 * whenever no chunk can be removed, then cuts the moves after the first difference.
+	 */
+	private int[] minimize(MinesweeperEngine engine, difficulty difficulty, long gameSeed, int[] moves) {
+		int[] current = moves;
+		int numChunks = 2;
+		while (current.length >= 2) {
+			int chunkSize = (current.length + numChunks - 1) / numChunks;
+			boolean isReduced = false;
+			for (int start = 0; start < current.length; start += chunkSize) {
+				int end = Math.min(start + chunkSize, current.length);
+				int[] candidate = new int[current.length - (end - start)];
+				System.arraycopy(current, 0, candidate, 0, start);
+				System.arraycopy(current, end, candidate, start, current.length - end);
+
+				int length = replay(engine, difficulty, gameSeed, candidate);
+				if (length > 0) {
+					current = Arrays.copyOf(candidate, length);
+					numChunks = Math.max(numChunks - 1, 2);
+					isReduced = true;
+					break;
+				}
+			}
+			if (!isReduced) {
+				if (chunkSize == 1) {
+					break;
+				}
+				numChunks = Math.min(numChunks * 2, current.length);
+			}
+		}
+		return current;
+	}
+
+	/*
+	 * Plays moves on the reference and an engine until they differ or the game ends.
+	 * Returns the number of moves up to and including the first difference, or 0 if they never differ.
+	 */
+	private int replay(MinesweeperEngine engine, difficulty difficulty, long gameSeed, int[] moves) {
+		REFERENCE.reset(difficulty, gameSeed);
+		engine.reset(difficulty, gameSeed);
+		for (int i = 0; i < moves.length && REFERENCE.getGameState() == gameState.PLAYING; i++) {
+			apply(REFERENCE, moves[i]);
+			REFERENCE.getBoard(EXPECTED);
+			apply(engine, moves[i]);
+			if (compare(engine) != null) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/*
+	 * Describes a move as text, such as "reveal 3 4".
+	 */
+	private String describeMove(int move, difficulty difficulty) {
+		int[] size = SIZES[difficulty.ordinal()];
+		int numCols = size[1];
+		int numCells = size[0] * numCols;
+		int cell = move % numCells;
+		return (move >= numCells ? "flag " : "reveal ") + (cell / numCols) + " " + (cell % numCols);
+	}
+
+	/*
+	 * Describes a visible code as text.
+	 */
+	private static String describeCode(byte code) {
+		switch (code) {
+		case Minefield.HIDDEN_CODE:
+			return "hidden";
+		case Minefield.FLAG_CODE:
+			return "flag";
+		case Minefield.MINE_CODE:
+			return "mine";
+		default:
+			return Integer.toString(code);
+		}
+	}
+
+	/*
+	 * Prints games and moves per minute so far for one thread.
+	 */
+	private static void printProgress(int numGames, long numMoves, long start) {
+		double minutes = (System.nanoTime() - start) / 6e10;
+		System.out.printf("%s: %d games, %d moves, %.0f games/min%n", Thread.currentThread().getName(), numGames,
+				numMoves, numGames / minutes);
+	}
+
+	/*
+	 * Looks up the size of every difficulty from the model, so it's only defined in one place.
+	 */
+	private static int[][] getSizes() {
+		MinesweeperModel model = new MinesweeperModel();
+		int[][] sizes = new int[DIFFICULTIES.length][];
+		for (difficulty difficulty : DIFFICULTIES) {
+			model.setMineField(difficulty);
+			sizes[difficulty.ordinal()] = new int[] {model.getNumRows(), model.getNumCols(), model.getNumFlagsLeft()};
+		}
+		return sizes;
+	}
+
+	/**
+	 * Adapter for MinesweeperModel, subclasses change how its mine field is stored or revealed.
+	 *
+	 */
+	static class ModelEngine implements MinesweeperEngine {
+		private final String NAME;
+		protected final MinesweeperModel model = new MinesweeperModel();
+
+		ModelEngine(String name) {
+			NAME = name;
+		}
+
+		/*
+		 * Sets up the model's empty mine field for a difficulty.
+		 */
+		protected void setMineField(difficulty difficulty) {
+			model.setMineField(difficulty);
+		}
+
+		@Override
+		public String getName() {
+			return NAME;
+		}
+
+		@Override
+		public void reset(difficulty difficulty, long seed) {
+			setMineField(difficulty);
+			model.setSeed(seed);
+		}
+
+		@Override
+		public void reveal(int row, int col) {
+			if (!model.isMineFieldGenerated()) {
+				model.generateMineField(row, col);
+				model.generateNumField();
+			}
+			model.reveal(row, col);
+		}
+
+		@Override
+		public void placeFlag(int row, int col) {
+			model.placeFlag(row, col);
+		}
+
+		@Override
+		public gameState getGameState() {
+			return model.getGameState();
+		}
+
+		@Override
+		public int getNumFlagsLeft() {
+			return model.getNumFlagsLeft();
+		}
+
+		@Override
+		public void getBoard(byte[] codes) {
+			model.getMineField().getCodes(codes);
+		}
+	}
+
+	/**
+	 * Model that pages its mine field out to packed bytes and back in between every move.
+	 *
+	 */
+	static class PagedEngine extends ModelEngine {
+		PagedEngine() {
+			super("Minefield.pack");
+		}
+
+		@Override
+		public void reveal(int row, int col) {
+			model.pageIn();
+			super.reveal(row, col);
+			model.pageOut();
+		}
+
+		@Override
+		public void placeFlag(int row, int col) {
+			model.pageIn();
+			super.placeFlag(row, col);
+			model.pageOut();
+		}
+
+		@Override
+		public void getBoard(byte[] codes) {
+			model.pageIn();
+			super.getBoard(codes);
+			model.pageOut();
+		}
+	}
+
+	/**
+	 * Model using the tile-sharded parallel flood reveal.
+	 *
+	 */
+	static class ParallelRevealEngine extends ModelEngine {
+		ParallelRevealEngine(ForkJoinPool pool, int tileSize) {
+			super("ShardedReveal");
+			model.setParallelReveal(pool, tileSize);
+		}
+	}
+
+	/**
+	 * Model whose board is only seen through the spectator stream, which checks that the model's events cover
+	 * every changed cell and that frames decode to the same board.
+	 *
+	 */
+	static class StreamEngine extends ModelEngine {
+		// frames are written to and read back from the same growing buffer
+		private byte[] stream = new byte[1024];
+		private int numWritten;
+		private int numRead;
+
+		private final OutputStream OUT = new OutputStream() {
+			@Override
+			public void write(int b) {
+				write(new byte[] {(byte) b}, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				if (numWritten + len > stream.length) {
+					stream = Arrays.copyOf(stream, Math.max(numWritten + len, stream.length * 2));
+				}
+				System.arraycopy(b, off, stream, numWritten, len);
+				numWritten += len;
+			}
+		};
+		private final InputStream IN = new InputStream() {
+			@Override
+			public int read() {
+				return numRead < numWritten ? stream[numRead++] & 0xFF : -1;
+			}
+		};
+		private final FrameEncoder ENCODER = new FrameEncoder(model, OUT, 16);
+		private final FrameDecoder DECODER = new FrameDecoder(IN);
+
+		StreamEngine() {
+			super("FrameEncoder");
+		}
+
+		@Override
+		public void reset(difficulty difficulty, long seed) {
+			super.reset(difficulty, seed);
+			numWritten = 0;
+			numRead = 0;
+			ENCODER.writeKeyframe();
+		}
+
+		@Override
+		public void getBoard(byte[] codes) {
+			try {
+				while (DECODER.readFrame()) {
+					// catch up on every frame written since the last look
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			byte[] decoded = DECODER.getCodes();
+			System.arraycopy(decoded, 0, codes, 0, decoded.length);
+		}
+	}
+
+	/**
+	 * Single game of a VectorMinesweeperEnv.
+	 *
+	 */
+	static class VectorEngine implements MinesweeperEngine {
+		private final EnumMap<difficulty, VectorMinesweeperEnv> ENVS = new EnumMap<difficulty, VectorMinesweeperEnv>(difficulty.class);
+		private final int[] ACTIONS = new int[1];
+		private final float[] REWARDS = new float[1];
+		private final boolean[] DONES = new boolean[1];
+		private VectorMinesweeperEnv env;
+		private int numCols;
+
+		@Override
+		public String getName() {
+			return "VectorMinesweeperEnv";
+		}
+
+		@Override
+		public void reset(difficulty difficulty, long seed) {
+			env = ENVS.get(difficulty);
+			if (env == null) {
+				env = new VectorMinesweeperEnv(difficulty, 1);
+				ENVS.put(difficulty, env);
+			}
+			numCols = SIZES[difficulty.ordinal()][1];
+			env.reset(0, seed);
+		}
+
+		@Override
+		public void reveal(int row, int col) {
+			ACTIONS[0] = row * numCols + col;
+			env.step(ACTIONS, REWARDS, DONES);
+		}
+
+		@Override
+		public void placeFlag(int row, int col) {
+			ACTIONS[0] = env.getNumCells() + row * numCols + col;
+			env.step(ACTIONS, REWARDS, DONES);
+		}
+
+		@Override
+		public gameState getGameState() {
+			return env.getGameState(0);
+		}
+
+		@Override
+		public int getNumFlagsLeft() {
+			return env.getNumFlagsLeft(0);
+		}
+
+		@Override
+		public void getBoard(byte[] codes) {
+			env.observe(ByteBuffer.wrap(codes));
+		}
+	}
+}
@@ -0,0 +1,200 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Plays back a stream written by FrameEncoder, one frame at a time, keeping the visible board a spectator sees.
+ * Deltas before the first keyframe are skipped, so a spectator can start reading anywhere a frame starts.
+ * @author Jason Wu
+ *
+ */
+public class FrameDecoder {
+	private final InputStream IN;
+
+	private byte[] codes = new byte[0];  // visible code of every cell, row by row
+	private int numRows;
+	private int numCols;
+	private boolean hasKeyframe;
+	private boolean isKeyframe;  // whether the last frame was a keyframe
+	private boolean isNewGame;  // whether the last frame was the keyframe that starts a game
+	private int[] changed = new int[64];  // cells set by the last delta
+	private int numChanged;
+
+	/**
+	 * Constructs a decoder reading from a stream.
+	 * @param in Stream of frames.
+	 */
+	public FrameDecoder(InputStream in) {
+		IN = in;
+	}
+
+	/**
+	 * Reads the next frame and applies it to the board.
+	 * @return False if the stream ended.
+	 * @throws IOException If the stream can't be read or a frame is cut off.
+	 */
+	public boolean readFrame() throws IOException {
+		int type = IN.read();
+		if (type == -1) {
+			return false;
+		}
+
+		isKeyframe = type == FrameEncoder.KEYFRAME || type == FrameEncoder.NEW_GAME;
+		isNewGame = type == FrameEncoder.NEW_GAME;
+		numChanged = 0;
+		if (isKeyframe) {
+			numRows = readVarint();
+			numCols = readVarint();
+			int numCells = numRows * numCols;
+			if (codes.length != numCells) {
+				codes = new byte[numCells];
+			}
+			for (int i = 0; i < numCells; i += 2) {
+				int packed = readByte();
+				codes[i] = (byte) (packed >> 4);
+				if (i + 1 < numCells) {
+					codes[i + 1] = (byte) (packed & 0x0F);
+				}
+			}
+			hasKeyframe = true;
+			return true;
+		}
+
+		numChanged = readVarint();
+		if (changed.length < numChanged) {
+			changed = new int[numChanged];
+		}
+		if (readByte() == FrameEncoder.GAPS) {
+			int cell = 0;
+			for (int i = 0; i < numChanged; i++) {
+				cell += readVarint();
+				changed[i] = cell;
+			}
+		} else {
+			int count = 0;
+			int maskLength = readVarint();  // read from the frame, the board size is unknown before a keyframe
+			for (int i = 0; i < maskLength; i++) {
+				int mask = readByte();
+				for (int bit = 0; bit < 8; bit++) {
+					if ((mask & (1 << bit)) != 0) {
+						changed[count++] = i * 8 + bit;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < numChanged; i += 2) {
+			int packed = readByte();
+			if (hasKeyframe) {
+				codes[changed[i]] = (byte) (packed >> 4);
+				if (i + 1 < numChanged) {
+					codes[changed[i + 1]] = (byte) (packed & 0x0F);
+				}
+			}
+		}
+		if (!hasKeyframe) {
+			numChanged = 0;  // nothing was set
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the last frame read was a keyframe, which may have changed any cell.
+	 * @return True for keyframes, false for deltas.
+	 */
+	public boolean isKeyframe() {
+		return isKeyframe;
+	}
+
+	/**
+	 * Checks whether the last frame read was the keyframe that starts a game.
+	 * @return True if a new game started.
+	 */
+	public boolean isNewGame() {
+		return isNewGame;
+	}
+
+	/**
+	 * Gets the number of cells the last delta set, 0 after a keyframe. Cells can be set to the code they had.
+	 * @return Number of cells.
+	 */
+	public int getNumChanged() {
+		return numChanged;
+	}
+
+	/**
+	 * Gets a cell the last delta set, in increasing order.
+	 * @param i Index of the cell among the changed cells.
+	 * @return Index of the cell on the board, row by row.
+	 */
+	public int getChanged(int i) {
+		return changed[i];
+	}
+
+	/**
+	 * Checks whether a keyframe has been read yet, before that the board is unknown.
+	 * @return Whether the board is known.
+	 */
+	public boolean hasKeyframe() {
+		return hasKeyframe;
+	}
+
+	/**
+	 * Gets the number of rows of the last keyframe's board.
+	 * @return Number of rows.
+	 */
+	public int getNumRows() {
+		return numRows;
+	}
+
+	/**
+	 * Gets the number of columns of the last keyframe's board.
+	 * @return Number of columns.
+	 */
+	public int getNumCols() {
+		return numCols;
+	}
+
+	/**
+	 * Gets what a spectator sees at a cell.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 * @return Visible code, coded like Minefield.getCode.
+	 */
+	public int getCode(int row, int col) {
+		return codes[row * numCols + col];
+	}
+
+	/**
+	 * Copies what a spectator sees of the whole board.
+	 * @return Visible codes, row by row.
+	 */
+	public byte[] getCodes() {
+		return Arrays.copyOf(codes, codes.length);
+	}
+
+	/*
+	 * Reads a byte, a frame that ends early is an error.
+	 */
+	private int readByte() throws IOException {
+		int value = IN.read();
+		if (value == -1) {
+			throw new EOFException("Frame is cut off");
+		}
+		return value;
+	}
+
+	/*
+	 * Reads an int written by FrameEncoder.writeVarint.
+	 */
+	private int readVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			int next = readByte();
+			value |= (next & 0x7F) << shift;
+			if ((next & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+}
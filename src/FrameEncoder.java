@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Streams a live game to spectators (a file for playback, a socket, etc.) as delta-encoded frames.
+ * Listens to the model and writes one frame per move with only the cells the move changed, plus a full keyframe
+ * every few frames so a spectator can join mid-game or skip ahead. Read the stream back with FrameDecoder.
+ * <p>
+ * Every cell is a visible code: 0-8 for a revealed digit, 9 hidden, 10 flag, 11 mine. Frames are:
+ * <ul>
+ * <li>Keyframe: 0, or 2 for the keyframe that starts a game, rows, columns (varints), then every code packed
+ * two per byte.</li>
+ * <li>Delta: 1, number of changed cells (varint), then either 0 and for each cell the gap from the last changed
+ * cell (varint) followed by the codes packed two per byte, or 1, the length of a bitmask of changed cells in
+ * bytes (varint), the bitmask, then the codes. Whichever is smaller is used. The length lets a spectator who hasn't
+ * seen a keyframe yet, and so doesn't know the board size, skip the frame.</li>
+ * </ul>
+ * @author Jason Wu
+ *
+ */
+public final class FrameEncoder implements MinesweeperListener {
+	static final int KEYFRAME = 0;
+	static final int DELTA = 1;
+	static final int NEW_GAME = 2;  // keyframe that starts a game
+	static final int GAPS = 0;
+	static final int BITMASK = 1;
+
+	private final MinesweeperModel MODEL;
+	private final OutputStream OUT;
+	private final int KEYFRAME_INTERVAL;
+
+	private byte[] buffer = new byte[256];  // frame being written, reused
+	private int length;
+	private int[] changed = new int[64];  // changed cells of the current frame, reused
+
+	private int framesSinceKeyframe;
+	private long numFrames;
+	private long bytesWritten;
+	private long encodeTime;  // nanoseconds
+	private boolean hasFailed;
+
+	/**
+	 * Constructs an encoder and starts listening to the model. Call writeKeyframe once a game is set up.
+	 * @param model Model of the game to stream.
+	 * @param out Stream to write frames to.
+	 * @param keyframeInterval Number of frames between keyframes.
+	 */
+	public FrameEncoder(MinesweeperModel model, OutputStream out, int keyframeInterval) {
+		MODEL = model;
+		OUT = out;
+		KEYFRAME_INTERVAL = Math.max(keyframeInterval, 1);
+		model.addListener(this);
+	}
+
+	/**
+	 * Writes the whole board marked as the start of a new game, call it at the start of every game.
+	 */
+	public void writeKeyframe() {
+		writeKeyframe(NEW_GAME);
+	}
+
+	/**
+	 * Writes a frame with the cells the move changed, or a keyframe if it's time for one.
+	 */
+	@Override
+	public void modelChanged(ModelEventBatch events) {
+		if (++framesSinceKeyframe >= KEYFRAME_INTERVAL) {
+			writeKeyframe(KEYFRAME);
+			return;
+		}
+
+		long start = System.nanoTime();
+		Minefield mineField = MODEL.getMineField();
+		int numCols = mineField.getNumCols();
+		int numCells = mineField.getNumRows() * numCols;
+
+		// sorted, duplicate free list of changed cells
+		if (changed.length < events.size()) {
+			changed = new int[Math.max(events.size(), changed.length * 2)];
+		}
+		int numChanged = 0;
+		for (int i = 0; i < events.size(); i++) {
+			if (events.getRow(i) >= 0) {
+				changed[numChanged++] = events.getRow(i) * numCols + events.getCol(i);
+			}
+		}
+		Arrays.sort(changed, 0, numChanged);
+		int unique = 0;
+		for (int i = 0; i < numChanged; i++) {
+			if (unique == 0 || changed[i] != changed[unique - 1]) {
+				changed[unique++] = changed[i];
+			}
+		}
+		numChanged = unique;
+		if (numChanged == 0) {
+			framesSinceKeyframe--;
+			return;
+		}
+
+		length = 0;
+		writeByte(DELTA);
+		writeVarint(numChanged);
+
+		int gapBytes = 0;
+		for (int i = 0; i < numChanged; i++) {
+			gapBytes += getVarintLength(i == 0 ? changed[0] : changed[i] - changed[i - 1]);
+		}
+		if (gapBytes <= (numCells + 7) / 8) {
+			writeByte(GAPS);
+			for (int i = 0; i < numChanged; i++) {
+				writeVarint(i == 0 ? changed[0] : changed[i] - changed[i - 1]);
+			}
+		} else {
+			writeByte(BITMASK);
+			writeVarint((numCells + 7) / 8);
+			int maskStart = length;
+			for (int i = 0; i < (numCells + 7) / 8; i++) {
+				writeByte(0);
+			}
+			for (int i = 0; i < numChanged; i++) {
+				buffer[maskStart + changed[i] / 8] |= (byte) (1 << (changed[i] % 8));
+			}
+		}
+
+		for (int i = 0; i < numChanged; i += 2) {
+			int high = mineField.getCode(changed[i] / numCols, changed[i] % numCols);
+			int low = i + 1 < numChanged ? mineField.getCode(changed[i + 1] / numCols, changed[i + 1] % numCols) : 0;
+			writeByte(high << 4 | low);
+		}
+		flush(start);
+	}
+
+	/**
+	 * Stops listening to the model.
+	 */
+	public void close() {
+		MODEL.removeListener(this);
+	}
+
+	/**
+	 * Gets the number of frames written.
+	 * @return Number of frames.
+	 */
+	public long getNumFrames() {
+		return numFrames;
+	}
+
+	/**
+	 * Gets the number of bytes written.
+	 * @return Number of bytes.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Gets the total time spent encoding and writing frames.
+	 * @return Time in nanoseconds.
+	 */
+	public long getEncodeTime() {
+		return encodeTime;
+	}
+
+	/*
+	 * Writes the whole board, the type is KEYFRAME or NEW_GAME.
+	 */
+	private void writeKeyframe(int type) {
+		long start = System.nanoTime();
+		Minefield mineField = MODEL.getMineField();
+		int numRows = mineField.getNumRows();
+		int numCols = mineField.getNumCols();
+
+		length = 0;
+		writeByte(type);
+		writeVarint(numRows);
+		writeVarint(numCols);
+		int numCells = numRows * numCols;
+		for (int i = 0; i < numCells; i += 2) {
+			int high = mineField.getCode(i / numCols, i % numCols);
+			int low = i + 1 < numCells ? mineField.getCode((i + 1) / numCols, (i + 1) % numCols) : 0;
+			writeByte(high << 4 | low);
+		}
+		framesSinceKeyframe = 0;
+		flush(start);
+	}
+
+	/*
+	 * Writes the finished frame to the stream, after a write fails the stream is given up on.
+	 */
+	private void flush(long start) {
+		if (hasFailed) {
+			return;
+		}
+		try {
+			OUT.write(buffer, 0, length);
+			numFrames++;
+			bytesWritten += length;
+		} catch (IOException e) {
+			e.printStackTrace();
+			hasFailed = true;
+		}
+		encodeTime += System.nanoTime() - start;
+	}
+
+	/*
+	 * Appends a byte to the frame.
+	 */
+	private void writeByte(int value) {
+		if (length == buffer.length) {
+			buffer = Arrays.copyOf(buffer, length * 2);
+		}
+		buffer[length++] = (byte) value;
+	}
+
+	/*
+	 * Appends a non-negative int, 7 bits per byte with the high bit meaning more bytes follow.
+	 */
+	private void writeVarint(int value) {
+		while ((value & ~0x7F) != 0) {
+			writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		writeByte(value);
+	}
+
+	/*
+	 * Gets the number of bytes writeVarint uses for a value.
+	 */
+	private static int getVarintLength(int value) {
+		int numBytes = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			numBytes++;
+		}
+		return numBytes;
+	}
+}
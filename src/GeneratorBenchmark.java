@@ -0,0 +1,133 @@
+import java.util.Random;
+
+/**
+ * Measures how many boards per second each mine generator places, on one thread and on every core, and checks
+ * that both runs give the same boards. Also prints what a layout plays like: the average size of the first
+ * click's opening and how dense mines are near it compared to the whole board.
+ * Usage: java GeneratorBenchmark [rows] [cols] [mines] [boards] [threads]
+ * @author Jason Wu
+ *
+ */
+public class GeneratorBenchmark {
+	private static final int NEAR_DISTANCE = 4;  // cells within this many rows and columns of the first click are near it
+	private static final int NUM_SAMPLES = 2000;  // boards played to measure the openings
+
+	/**
+	 * Runs the benchmark for every generator.
+	 * @param args Optional rows, columns, mines, number of boards, and number of threads.
+	 * @throws InterruptedException If interrupted while waiting for the workers.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int numCols = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		int numMines = args.length > 2 ? Integer.parseInt(args[2]) : 99;
+		int numBoards = args.length > 3 ? Integer.parseInt(args[3]) : 200000;
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+		MineGenerator[] generators = {
+				new UniformMineGenerator(), new ClusteredMineGenerator(), new SparseStartMineGenerator(),
+				new OpeningMineGenerator()
+		};
+		System.out.printf("%dx%d, %d mines, %d boards%n", numRows, numCols, numMines, numBoards);
+		for (MineGenerator generator : generators) {
+			long start = System.nanoTime();
+			long checksum = generate(generator, numRows, numCols, numMines, numBoards, 1);
+			double sequentialTime = (System.nanoTime() - start) / 1e9;
+
+			start = System.nanoTime();
+			long parallelChecksum = generate(generator, numRows, numCols, numMines, numBoards, threads);
+			double parallelTime = (System.nanoTime() - start) / 1e9;
+			if (parallelChecksum != checksum) {
+				throw new IllegalStateException(generator.getName() + " gave different boards on " + threads + " threads");
+			}
+
+			System.out.printf("%-14s %9.0f boards/s, %9.0f boards/s on %d threads", generator.getName(),
+					numBoards / sequentialTime, numBoards / parallelTime, threads);
+			printLayout(generator, numRows, numCols, numMines);
+		}
+	}
+
+	/*
+	 * Generates boards with seeds 0 to numBoards - 1 split between threads, returns a checksum of every layout.
+	 */
+	private static long generate(final MineGenerator generator, final int numRows, final int numCols,
+			final int numMines, final int numBoards, int threads) throws InterruptedException {
+		final long[] checksums = new long[threads];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int worker = t;
+			final int numWorkers = threads;
+			workers[t] = new Thread(new Runnable() {
+				public void run() {
+					for (int seed = worker; seed < numBoards; seed += numWorkers) {
+						Minefield mineField = new Minefield(numRows, numCols, numMines);
+						Random random = new Random(seed);
+						generator.placeMines(mineField, random.nextInt(numRows), random.nextInt(numCols), seed);
+						checksums[worker] += getLayoutHash(mineField) * (seed + 1);
+					}
+				}
+			});
+			workers[t].start();
+		}
+
+		long checksum = 0;
+		for (int t = 0; t < threads; t++) {
+			workers[t].join();
+			checksum += checksums[t];
+		}
+		return checksum;
+	}
+
+	/*
+	 * Plays the first click of some boards and prints the average opening and the mine density near the click.
+	 */
+	private static void printLayout(MineGenerator generator, int numRows, int numCols, int numMines) {
+		MinesweeperModel model = new MinesweeperModel();
+		model.setGenerator(generator);
+		long numOpened = 0;
+		long numNear = 0;
+		long numNearMines = 0;
+		for (int seed = 0; seed < NUM_SAMPLES; seed++) {
+			model.setMineField(new Minefield(numRows, numCols, numMines));
+			model.setSeed(seed);
+			Random random = new Random(seed);
+			int startingRow = random.nextInt(numRows);
+			int startingCol = random.nextInt(numCols);
+			model.generateMineField(startingRow, startingCol);
+			model.generateNumField();
+			model.reveal(startingRow, startingCol);
+
+			Minefield mineField = model.getMineField();
+			for (int i = 0; i < numRows; i++) {
+				for (int j = 0; j < numCols; j++) {
+					if (mineField.getState(i, j) == buttonState.REVEALED) {
+						numOpened++;
+					}
+					if (Math.abs(i - startingRow) <= NEAR_DISTANCE && Math.abs(j - startingCol) <= NEAR_DISTANCE) {
+						numNear++;
+						if (mineField.getIsMine(i, j)) {
+							numNearMines++;
+						}
+					}
+				}
+			}
+		}
+		System.out.printf(", opening %.1f cells, near density %.2f of average%n", (double) numOpened / NUM_SAMPLES,
+				(double) numNearMines / numNear / ((double) numMines / (numRows * numCols)));
+	}
+
+	/*
+	 * Hashes which cells are mines.
+	 */
+	private static long getLayoutHash(Minefield mineField) {
+		long hash = 0;
+		for (int i = 0; i < mineField.getNumRows(); i++) {
+			for (int j = 0; j < mineField.getNumCols(); j++) {
+				if (mineField.getIsMine(i, j)) {
+					hash = hash * 31 + i * mineField.getNumCols() + j + 1;
+				}
+			}
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,78 @@
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent input latency samples (time from a click to the cells being painted) for reporting.
+ * @author Jason Wu
+ *
+ */
+public class LatencyTracker {
+	private final long[] SAMPLES;  // nanoseconds, used as a ring buffer
+	private int numSamples;
+	private int next;
+	
+	/**
+	 * Constructs a tracker that remembers a fixed number of samples.
+	 * @param capacity Number of most recent samples to keep.
+	 */
+	public LatencyTracker(int capacity) {
+		SAMPLES = new long[capacity];
+	}
+	
+	/**
+	 * Records one latency sample, replacing the oldest one once full.
+	 * @param nanos Latency in nanoseconds.
+	 */
+	public void record(long nanos) {
+		SAMPLES[next] = nanos;
+		next = (next + 1) % SAMPLES.length;
+		if (numSamples < SAMPLES.length) {
+			numSamples++;
+		}
+	}
+	
+	/**
+	 * Removes all samples, used on a new game.
+	 */
+	public void clear() {
+		numSamples = 0;
+		next = 0;
+	}
+	
+	/**
+	 * Gets the number of samples kept.
+	 * @return Number of samples.
+	 */
+	public int getNumSamples() {
+		return numSamples;
+	}
+	
+	/**
+	 * Gets the average latency of the samples kept.
+	 * @return Average latency in milliseconds, 0 if there are no samples.
+	 */
+	public double getAverageMillis() {
+		if (numSamples == 0) {
+			return 0;
+		}
+		long total = 0;
+		for (int i = 0; i < numSamples; i++) {
+			total += SAMPLES[i];
+		}
+		return total / 1e6 / numSamples;
+	}
+	
+	/**
+	 * Gets the latency at a percentile of the samples kept.
+	 * @param percentile Percentile between 0 and 1, 0.95 is the 95th percentile.
+	 * @return Latency in milliseconds, 0 if there are no samples.
+	 */
+	public double getPercentileMillis(double percentile) {
+		if (numSamples == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(SAMPLES, numSamples);
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(percentile * numSamples) - 1;
+		return sorted[Math.max(0, Math.min(rank, numSamples - 1))] / 1e6;
+	}
+}
@@ -0,0 +1,25 @@
+/**
+ * Strategy for placing the mines of a new game around the first click. Implementations keep no state between
+ * boards, so one generator can be shared by any number of threads, and the same seed and first click must always
+ * give the same layout.
+ * @author Jason Wu
+ *
+ */
+public interface MineGenerator {
+
+	/**
+	 * Gets a name for reports.
+	 * @return Name of the strategy.
+	 */
+	String getName();
+
+	/**
+	 * Places the mine field's number of mines, the first click must not be a mine.
+	 * @param mineField Mine field without any mines.
+	 * @param startingRow The row where the first click happened.
+	 * @param startingCol The column where the first click happened.
+	 * @param seed Seed the mines are placed with.
+	 * @throws IllegalArgumentException If there isn't room for the mines outside the cells kept safe.
+	 */
+	void placeMines(Minefield mineField, int startingRow, int startingCol, long seed);
+}
@@ -5,6 +5,17 @@
  *
  */
 public class Minefield {
+	// layout of a packed cell: state in bits 5-6, mine in bit 4, digit in bits 0-3
+	static final buttonState[] STATES = buttonState.values();
+	static final int STATE_SHIFT = 5;
+	static final int MINE_BIT = 0x10;
+	static final int DIGIT_MASK = 0x0F;
+	
+	// visible codes of the cells that don't show a digit, a revealed cell's code is its digit (0-8)
+	public static final int HIDDEN_CODE = 9;
+	public static final int FLAG_CODE = 10;
+	public static final int MINE_CODE = 11;
+	
 	private final Cell[][] GRID;
 	private final int NUM_MINES;
 	private final int NUM_ROWS;
@@ -17,22 +28,75 @@ public class Minefield {
 	 * @param numMines Number of mines.
 	 */
 	public Minefield(int numRows, int numCols, int numMines) {
-		GRID = new Cell[numRows][numCols];
+		this(numRows, numCols, numMines, true);
+	}
+	
+	/**
+	 * Constructs a mine field without cell objects, for subclasses that store their cells some other way.
+	 * Subclasses must override every method that reads cells.
+	 * @param numRows Number of rows.
+	 * @param numCols Number of columns.
+	 * @param numMines Number of mines.
+	 * @param hasCells False to skip creating the cell objects.
+	 */
+	protected Minefield(int numRows, int numCols, int numMines, boolean hasCells) {
+		GRID = hasCells ? new Cell[numRows][numCols] : null;
 		
 		NUM_ROWS = numRows;
 		NUM_COLS = numCols;
 		NUM_MINES = numMines;
 		
+		if (hasCells) {
+			for (int i = 0; i < NUM_ROWS; i++) {
+				for (int j = 0; j < NUM_COLS; j++) {
+					GRID[i][j] = new Cell();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Constructs a mine field from the compact form made by pack.
+	 * @param numRows Number of rows.
+	 * @param numCols Number of columns.
+	 * @param numMines Number of mines.
+	 * @param packed One byte per cell, row by row.
+	 */
+	public Minefield(int numRows, int numCols, int numMines, byte[] packed) {
+		this(numRows, numCols, numMines);
+		
 		for (int i = 0; i < NUM_ROWS; i++) {
 			for (int j = 0; j < NUM_COLS; j++) {
-				GRID[i][j] = new Cell();
+				byte data = packed[i * NUM_COLS + j];
+				Cell cell = GRID[i][j];
+				if ((data & MINE_BIT) != 0) {
+					cell.setIsMine();
+				}
+				cell.setNumNeighboringMines(data & DIGIT_MASK);
+				cell.setState(STATES[(data >> STATE_SHIFT) & 0x03]);
 			}
 		}
-		
 	}
 	
 	/**
-	 * Gets the cell object for a specified location.
+	 * Packs the mine field into one byte per cell (mine, digit, and state), a fraction of the size of the cell objects.
+	 * @return Packed cells, row by row.
+	 */
+	public byte[] pack() {
+		byte[] packed = new byte[NUM_ROWS * NUM_COLS];
+		for (int i = 0; i < NUM_ROWS; i++) {
+			for (int j = 0; j < NUM_COLS; j++) {
+				Cell cell = GRID[i][j];
+				packed[i * NUM_COLS + j] = (byte) ((cell.getState().ordinal() << STATE_SHIFT) | (cell.getIsMine() ? MINE_BIT : 0) 
+						| cell.getNumNeighboringMines());
+			}
+		}
+		return packed;
+	}
+	
+	/**
+	 * Gets the cell object for a specified location. Loops over many cells should use the accessors that take a
+	 * row and column instead, subclasses may have to create the cell object.
 	 * @param row Row of the cell.
 	 * @param col Column of the cell.
 	 * @return The cell object.
@@ -41,6 +105,106 @@ public class Minefield {
 		return GRID[row][col];
 	}
 	
+	/**
+	 * Gets the state of a cell without going through its cell object, meant for loops over many cells.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 * @return State of the cell.
+	 */
+	public buttonState getState(int row, int col) {
+		return GRID[row][col].getState();
+	}
+	
+	/**
+	 * Sets the state of a cell without going through its cell object.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 * @param state New state.
+	 */
+	public void setState(int row, int col, buttonState state) {
+		GRID[row][col].setState(state);
+	}
+	
+	/**
+	 * Gets whether a cell is a mine without going through its cell object.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 * @return True if the cell is a mine.
+	 */
+	public boolean getIsMine(int row, int col) {
+		return GRID[row][col].getIsMine();
+	}
+	
+	/**
+	 * Makes a cell a mine without going through its cell object.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 */
+	public void setIsMine(int row, int col) {
+		GRID[row][col].setIsMine();
+	}
+	
+	/**
+	 * Gets the digit of a cell without going through its cell object.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 * @return Number of neighboring mines.
+	 */
+	public int getNumNeighboringMines(int row, int col) {
+		return GRID[row][col].getNumNeighboringMines();
+	}
+	
+	/**
+	 * Sets the digit of a cell without going through its cell object.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 * @param num Number of neighboring mines.
+	 */
+	public void setNumNeighboringMines(int row, int col, int num) {
+		GRID[row][col].setNumNeighboringMines(num);
+	}
+	
+	/**
+	 * Gets what the player sees of a cell as one number, the form every board copy, stream, and solver uses.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 * @return The digit (0-8) for revealed cells, HIDDEN_CODE, FLAG_CODE, or MINE_CODE.
+	 */
+	public int getCode(int row, int col) {
+		switch (getState(row, col)) {
+		case REVEALED:
+			return getNumNeighboringMines(row, col);
+		case FLAG:
+			return FLAG_CODE;
+		case MINE:
+			return MINE_CODE;
+		default:
+			return HIDDEN_CODE;
+		}
+	}
+	
+	/**
+	 * Copies what the player sees of every cell, see getCode.
+	 * @param codes Array to write to, one byte per cell, row by row.
+	 */
+	public void getCodes(byte[] codes) {
+		for (int i = 0; i < NUM_ROWS; i++) {
+			for (int j = 0; j < NUM_COLS; j++) {
+				codes[i * NUM_COLS + j] = (byte) getCode(i, j);
+			}
+		}
+	}
+	
+	/**
+	 * Copies what the player sees of every cell into a new array, see getCode.
+	 * @return One byte per cell, row by row.
+	 */
+	public byte[] getCodes() {
+		byte[] codes = new byte[NUM_ROWS * NUM_COLS];
+		getCodes(codes);
+		return codes;
+	}
+	
 	/**
 	 * Gets the number of mines.
 	 * @return Number of mines.
@@ -0,0 +1,463 @@
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+/**
+ * Mine field drawn as one component inside a scroll pane. Only the cells inside the area being repainted are
+ * drawn, straight from the model's mine field, so painting and memory cost depend on the window size, not the
+ * board size. Holding ctrl while scrolling the mouse wheel zooms around the mouse, and the arrow keys move a
+ * cursor for keyboard play.
+ * @author Jason Wu
+ *
+ */
+public final class MinefieldPanel extends JPanel implements Scrollable {
+	private static final long serialVersionUID = 1L;
+
+	private final int MIN_CELL_SIZE = 4;
+	private final int MAX_CELL_SIZE = 96;
+	private final Color CURSOR_COLOR = Color.BLUE;
+	private static final Color[] HEAT_COLORS = new Color[21];  // green for safe through red for certain mines
+
+	static {
+		for (int i = 0; i < HEAT_COLORS.length; i++) {
+			int red = 255 * i / (HEAT_COLORS.length - 1);
+			HEAT_COLORS[i] = new Color(red, 255 - red, 0, 120);
+		}
+	}
+
+	private final transient TileAtlas TILE_ATLAS;
+	private final transient ComponentAdapter RESIZE_LISTENER;
+	private final Rectangle CURSOR_BOUNDS = new Rectangle();  // reused so moving the cursor doesn't allocate
+
+	private transient Minefield mineField;
+	private int numRows;
+	private int numCols;
+	private Minimap minimap;
+	private boolean isFitted = true;  // cell size follows the window until the player zooms
+
+	private int cursorRow;
+	private int cursorCol;
+	private boolean isCursorShown;  // only after an arrow key, hidden again by the mouse
+	private float[] probabilities;  // mine probability of each cell for the overlay, null when it's off
+
+	// cells changed since the last repaint, so a big flood reveal repaints once
+	private boolean isRepaintQueued;
+	private int dirtyTop;
+	private int dirtyLeft;
+	private int dirtyBottom;
+	private int dirtyRight;
+	private final transient Runnable REPAINT_DIRTY = new Runnable() {
+		public void run() {
+			int cellSize = TILE_ATLAS.getCellSize();
+			repaint(dirtyLeft * cellSize, dirtyTop * cellSize, (dirtyRight - dirtyLeft + 1) * cellSize,
+					(dirtyBottom - dirtyTop + 1) * cellSize);
+			isRepaintQueued = false;
+		}
+	};
+
+	/**
+	 * Constructs an empty board panel.
+	 * @param tileAtlas Atlas the cells are drawn from, its cell size is the zoom level.
+	 */
+	public MinefieldPanel(TileAtlas tileAtlas) {
+		TILE_ATLAS = tileAtlas;
+
+		// refit when the window is resized, unless the player has zoomed
+		RESIZE_LISTENER = new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				if (isFitted) {
+					fitToViewport();
+				}
+			}
+		};
+
+		// arrow keys move the cursor, the controller handles the keys that make moves
+		setFocusable(true);
+		addKeyListener(new KeyAdapter() {
+			@Override
+			public void keyPressed(KeyEvent e) {
+				switch (e.getKeyCode()) {
+				case KeyEvent.VK_UP:
+					moveCursor(cursorRow - 1, cursorCol);
+					break;
+				case KeyEvent.VK_DOWN:
+					moveCursor(cursorRow + 1, cursorCol);
+					break;
+				case KeyEvent.VK_LEFT:
+					moveCursor(cursorRow, cursorCol - 1);
+					break;
+				case KeyEvent.VK_RIGHT:
+					moveCursor(cursorRow, cursorCol + 1);
+					break;
+				default:
+					break;
+				}
+			}
+		});
+		addMouseListener(new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e) {
+				requestFocusInWindow();
+				if (isCursorShown) {
+					isCursorShown = false;
+					repaintCursor();
+				}
+			}
+		});
+
+		// zoom with ctrl + wheel, pass plain scrolling on to the scroll pane
+		addMouseWheelListener(new MouseWheelListener() {
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				if (e.isControlDown()) {
+					int cellSize = TILE_ATLAS.getCellSize();
+					int step = Math.max(cellSize / 8, 1);
+					zoom(e.getWheelRotation() < 0 ? cellSize + step : cellSize - step, e.getPoint());
+				} else {
+					Component scrollPane = SwingUtilities.getAncestorOfClass(JScrollPane.class, MinefieldPanel.this);
+					if (scrollPane != null) {
+						scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(MinefieldPanel.this, e, scrollPane));
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Sets the mine field to draw and fits it to the window.
+	 * @param mineField Mine field from the model.
+	 */
+	public void setMineField(Minefield mineField) {
+		this.mineField = mineField;
+		numRows = mineField.getNumRows();
+		numCols = mineField.getNumCols();
+		cursorRow = numRows / 2;
+		cursorCol = numCols / 2;
+		isCursorShown = false;
+		probabilities = null;
+		isFitted = true;
+		fitToViewport();
+		if (minimap != null) {
+			minimap.setMineField(mineField);
+		}
+		revalidate();
+		repaint();
+		requestFocusInWindow();
+	}
+
+	/**
+	 * Sets the minimap kept up to date with this board.
+	 * @param minimap Minimap of this board.
+	 */
+	public void setMinimap(Minimap minimap) {
+		this.minimap = minimap;
+	}
+
+	/**
+	 * Gets the current zoom level.
+	 * @return Width and height of a cell in pixels.
+	 */
+	public int getCellSize() {
+		return TILE_ATLAS.getCellSize();
+	}
+
+	/**
+	 * Gets the row at a point on the board.
+	 * @param y Y coordinate on the board.
+	 * @return Row, or -1 if the point is off the board.
+	 */
+	public int getRowAt(int y) {
+		int row = y / TILE_ATLAS.getCellSize();
+		return y < 0 || row >= numRows ? -1 : row;
+	}
+
+	/**
+	 * Gets the column at a point on the board.
+	 * @param x X coordinate on the board.
+	 * @return Column, or -1 if the point is off the board.
+	 */
+	public int getColAt(int x) {
+		int col = x / TILE_ATLAS.getCellSize();
+		return x < 0 || col >= numCols ? -1 : col;
+	}
+
+	/**
+	 * Gets the row of the keyboard cursor.
+	 * @return Row of the cursor.
+	 */
+	public int getCursorRow() {
+		return cursorRow;
+	}
+
+	/**
+	 * Gets the column of the keyboard cursor.
+	 * @return Column of the cursor.
+	 */
+	public int getCursorCol() {
+		return cursorCol;
+	}
+
+	/**
+	 * Shades each hidden cell by its chance of being a mine. The whole board is only repainted when the overlay
+	 * turns on, turns off, or changes, so turning off an overlay that's already off keeps moves repainting only
+	 * the cells they changed.
+	 * @param probabilities Mine probability of each cell row by row, NaN for no shade, or null to turn it off.
+	 */
+	public void setProbabilities(float[] probabilities) {
+		if (probabilities == this.probabilities) {
+			return;
+		}
+		this.probabilities = probabilities;
+		repaint();
+	}
+
+	/**
+	 * Queues a cell to be redrawn, all cells changed by one move are redrawn together.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 */
+	public void updateCell(int row, int col) {
+		if (!isRepaintQueued) {
+			isRepaintQueued = true;
+			dirtyTop = dirtyBottom = row;
+			dirtyLeft = dirtyRight = col;
+			SwingUtilities.invokeLater(REPAINT_DIRTY);
+		} else {
+			dirtyTop = Math.min(dirtyTop, row);
+			dirtyBottom = Math.max(dirtyBottom, row);
+			dirtyLeft = Math.min(dirtyLeft, col);
+			dirtyRight = Math.max(dirtyRight, col);
+		}
+		if (minimap != null) {
+			minimap.updateCell(row, col);
+		}
+	}
+
+	/**
+	 * Redraws the whole board.
+	 */
+	public void updateAll() {
+		repaint();
+		if (minimap != null) {
+			minimap.updateAll();
+		}
+	}
+
+	/**
+	 * Scrolls so a cell is in the middle of the window.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 */
+	public void scrollToCell(int row, int col) {
+		JViewport viewport = getViewport();
+		if (viewport == null) {
+			return;
+		}
+		int cellSize = TILE_ATLAS.getCellSize();
+		Dimension extent = viewport.getExtentSize();
+		setViewPosition(viewport, col * cellSize + cellSize / 2 - extent.width / 2, row * cellSize + cellSize / 2 - extent.height / 2);
+	}
+
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		getParent().addComponentListener(RESIZE_LISTENER);
+	}
+
+	@Override
+	public void removeNotify() {
+		getParent().removeComponentListener(RESIZE_LISTENER);
+		super.removeNotify();
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		super.paintComponent(g);
+		if (mineField == null) {
+			return;
+		}
+
+		// only the cells the clip touches
+		int cellSize = TILE_ATLAS.getCellSize();
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+		int top = Math.max(clip.y / cellSize, 0);
+		int left = Math.max(clip.x / cellSize, 0);
+		int bottom = Math.min((clip.y + clip.height - 1) / cellSize, numRows - 1);
+		int right = Math.min((clip.x + clip.width - 1) / cellSize, numCols - 1);
+
+		for (int i = top; i <= bottom; i++) {
+			for (int j = left; j <= right; j++) {
+				buttonState state = mineField.getState(i, j);
+				TILE_ATLAS.drawTile(g, state, mineField.getNumNeighboringMines(i, j), j * cellSize, i * cellSize);
+
+				// probabilities can be a move behind, so only cells that are still hidden get shaded
+				if (probabilities != null && state == buttonState.HIDDEN) {
+					float probability = probabilities[i * numCols + j];
+					if (!Float.isNaN(probability)) {
+						int shade = Math.round(probability * (HEAT_COLORS.length - 1));
+						g.setColor(HEAT_COLORS[Math.max(0, Math.min(shade, HEAT_COLORS.length - 1))]);
+						g.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
+					}
+				}
+			}
+		}
+
+		if (isCursorShown) {
+			g.setColor(CURSOR_COLOR);
+			g.drawRect(cursorCol * cellSize, cursorRow * cellSize, cellSize - 1, cellSize - 1);
+			g.drawRect(cursorCol * cellSize + 1, cursorRow * cellSize + 1, cellSize - 3, cellSize - 3);
+		}
+	}
+
+	@Override
+	public Dimension getPreferredSize() {
+		int cellSize = TILE_ATLAS.getCellSize();
+		return new Dimension(numCols * cellSize, numRows * cellSize);
+	}
+
+	@Override
+	public Dimension getPreferredScrollableViewportSize() {
+		return getPreferredSize();
+	}
+
+	@Override
+	public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+		return TILE_ATLAS.getCellSize();
+	}
+
+	@Override
+	public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+		int cellSize = TILE_ATLAS.getCellSize();
+		int extent = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+		return Math.max(extent - cellSize, cellSize);
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportWidth() {
+		return false;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportHeight() {
+		return false;
+	}
+
+	/*
+	 * Moves the keyboard cursor, kept on the board, and scrolls to keep it in view.
+	 */
+	private void moveCursor(int row, int col) {
+		if (numRows == 0 || numCols == 0) {
+			return;
+		}
+		repaintCursor();
+		cursorRow = Math.max(Math.min(row, numRows - 1), 0);
+		cursorCol = Math.max(Math.min(col, numCols - 1), 0);
+		isCursorShown = true;
+		repaintCursor();
+
+		int cellSize = TILE_ATLAS.getCellSize();
+		CURSOR_BOUNDS.setBounds(cursorCol * cellSize, cursorRow * cellSize, cellSize, cellSize);
+		scrollRectToVisible(CURSOR_BOUNDS);
+	}
+
+	/*
+	 * Repaints the cell under the cursor.
+	 */
+	private void repaintCursor() {
+		int cellSize = TILE_ATLAS.getCellSize();
+		repaint(cursorCol * cellSize, cursorRow * cellSize, cellSize, cellSize);
+	}
+
+	/*
+	 * Sets the cell size to the largest that shows the whole board, but never smaller than the minimum,
+	 * larger boards scroll instead.
+	 */
+	private void fitToViewport() {
+		JViewport viewport = getViewport();
+		if (viewport == null || numRows == 0 || numCols == 0) {
+			return;
+		}
+		Dimension extent = viewport.getExtentSize();
+		if (extent.width == 0 || extent.height == 0) {
+			return;
+		}
+		int cellSize = Math.max(Math.min(extent.width / numCols, extent.height / numRows), MIN_CELL_SIZE);
+		if (cellSize != TILE_ATLAS.getCellSize()) {
+			TILE_ATLAS.setCellSize(cellSize);
+			revalidate();
+			repaint();
+		}
+	}
+
+	/*
+	 * Changes the cell size while keeping the point under the mouse in place. Zooming out past the
+	 * fitted size goes back to following the window.
+	 */
+	private void zoom(int cellSize, Point anchor) {
+		JViewport viewport = getViewport();
+		if (viewport == null) {
+			return;
+		}
+		Dimension extent = viewport.getExtentSize();
+		int fittedSize = Math.max(Math.min(extent.width / numCols, extent.height / numRows), MIN_CELL_SIZE);
+		if (cellSize <= fittedSize) {
+			isFitted = true;
+			fitToViewport();
+			return;
+		}
+		cellSize = Math.min(cellSize, MAX_CELL_SIZE);
+		int oldSize = TILE_ATLAS.getCellSize();
+		if (cellSize == oldSize) {
+			return;
+		}
+		isFitted = false;
+
+		Point position = viewport.getViewPosition();
+		TILE_ATLAS.setCellSize(cellSize);
+		viewport.setViewSize(getPreferredSize());
+		setViewPosition(viewport, (int) ((long) anchor.x * cellSize / oldSize) - (anchor.x - position.x),
+				(int) ((long) anchor.y * cellSize / oldSize) - (anchor.y - position.y));
+		revalidate();
+		repaint();
+	}
+
+	/*
+	 * Scrolls the viewport, kept inside the board.
+	 */
+	private void setViewPosition(JViewport viewport, int x, int y) {
+		Dimension size = getPreferredSize();
+		Dimension extent = viewport.getExtentSize();
+		x = Math.max(Math.min(x, size.width - extent.width), 0);
+		y = Math.max(Math.min(y, size.height - extent.height), 0);
+		viewport.setViewPosition(new Point(x, y));
+	}
+
+	/*
+	 * Gets the scroll pane's viewport this panel is in, if any.
+	 */
+	private JViewport getViewport() {
+		return getParent() instanceof JViewport ? (JViewport) getParent() : null;
+	}
+}
@@ -1,8 +1,15 @@
+import java.io.File;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import javax.swing.JButton;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 /**
@@ -14,9 +21,49 @@ import javax.swing.Timer;
 public class MinesweeperController {
 	private MinesweeperModel model;
 	private MinesweeperView view;
+	private StatisticsStore statistics;
+	
+	// mine layouts the player can pick on the main menu, the first is the classic uniform one
+	private final MineGenerator[] GENERATORS = {
+			new UniformMineGenerator(), new OpeningMineGenerator(), new SparseStartMineGenerator(), 
+			new ClusteredMineGenerator()
+	};
+	
+	private final int TIMER_DELAY = 100;  // milliseconds between display updates
+	private final int ASSIST_DELAY = 16;  // milliseconds between assist slices, about one frame
+	private final long ASSIST_BUDGET = 6000000L;  // nanoseconds of assist work per slice, leaving the rest of the frame
 	
 	private boolean isFirstClick;
+	private boolean isGameActive;  // the one gate for input, closed when the game ends
 	private Timer timer;
+	private LatencyTracker inputLatency = new LatencyTracker(1024);
+	
+	// records the latency of the pending input once it's painted, reused so input doesn't allocate
+	private long inputTime;
+	private boolean isLatencyPending;
+	private Runnable latencyRecorder = new Runnable() {
+		public void run() {
+			inputLatency.record(System.nanoTime() - inputTime);
+			isLatencyPending = false;
+		}
+	};
+	
+	// mine probabilities are solved on one background thread, a new move cancels the solve in progress
+	private ExecutorService solverExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "Probability solver");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private ProbabilitySolver solver = new ProbabilitySolver();  // only used on the solver thread
+	private Future<?> solverTask;
+	private int numSolves;  // only the latest solve's result is shown
+	
+	// optional assist that makes the obvious flags and chords after each move, a slice per frame
+	private AutoAssist assist;
+	private Timer assistTimer;
+	private boolean hasAssistMoved;  // moves made since the probabilities were last solved
 	
 	/**
 	 * Initializes the game and displays the main menu.
@@ -26,8 +73,83 @@ public class MinesweeperController {
 	public MinesweeperController(MinesweeperModel model, MinesweeperView view) {
 		this.model = model;
 		this.view = view;
+		this.statistics = new StatisticsStore(new File(System.getProperty("user.home"), ".minesweeper-stats"));
 		
 		this.view.addDifficultyListeners(new beginnerDifficultyListener(), new intermediateDifficultyListener(), new expertDifficultyListener());
+		String[] layoutNames = new String[GENERATORS.length];
+		for (int i = 0; i < GENERATORS.length; i++) {
+			layoutNames[i] = GENERATORS[i].getName();
+		}
+		this.view.setMineLayouts(layoutNames);
+		this.view.addCellListeners(new mouseClickListener(), new keyPressListener());
+		this.view.addHeatmapListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				updateProbabilities();
+			}
+		});
+		this.model.addListener(new modelChangeListener());
+		
+		this.assist = new AutoAssist(model);
+		this.assistTimer = new Timer(ASSIST_DELAY, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				runAssist();
+			}
+		});
+		this.assistTimer.setInitialDelay(0);
+		this.view.addAssistListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				assist.setEnabled(view.isAssistEnabled());
+				startAssist();
+			}
+		});
+	}
+	
+	/*
+	 * Records the finished game in the statistics store and shows the end screen with the player's stats.
+	 */
+	private int showEndScreen(gameState result) {
+		difficulty difficulty = model.getDifficulty();
+		int timeMillis = (int) (model.getTimeElapsedNanos() / 1000000L);
+		if (difficulty == null || model.getGenerator() != GENERATORS[0] || model.isAssisted()) {
+			// statistics are only kept for unassisted games on the standard difficulties with uniform mines, so
+			// times stay comparable
+			return view.showEndScreen(result, timeMillis, -1, -1, inputLatency.getAverageMillis(), 
+					inputLatency.getPercentileMillis(0.95));
+		}
+		
+		statistics.record(difficulty, model.getSeed(), timeMillis, model.getNumClicks(), 
+				model.getBoardMetrics().get3BV(), result == gameState.WON);
+		
+		int[] bestTime = statistics.getTopTimes(difficulty, 1);
+		return view.showEndScreen(result, timeMillis, bestTime.length > 0 ? bestTime[0] : -1, 
+				statistics.getWinRate(difficulty, 0), inputLatency.getAverageMillis(), inputLatency.getPercentileMillis(0.95));
+	}
+	
+	/**
+	 * Gets the input latency samples of the current game, time from a click until the changed cells are painted.
+	 * @return Input latency tracker.
+	 */
+	public LatencyTracker getInputLatency() {
+		return inputLatency;
+	}
+	
+	/**
+	 * Listener class for changes in the model.
+	 *
+	 */
+	class modelChangeListener implements MinesweeperListener {
+		/**
+		 * Redraws only the cells the last move changed.
+		 */
+		@Override
+		public void modelChanged(ModelEventBatch events) {
+			for (int i = 0; i < events.size(); i++) {
+				int row = events.getRow(i);
+				if (row >= 0) {
+					view.updateCell(row, events.getCol(i));
+				}
+			}
+		}
 	}
 	
 	/**
@@ -41,11 +163,15 @@ public class MinesweeperController {
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			isFirstClick = true;  // makes sure new game initializes correctly
-			timer = new Timer(1000, null);  // makes sure new game initializes correctly
+			timer = new Timer(TIMER_DELAY, null);  // makes sure new game initializes correctly
+			inputLatency.clear();
 			
+			model.setGenerator(GENERATORS[view.getMineLayout()]);
 			model.setMineField(difficulty.BEGINNER);
-			view.initializeMineField(model.getNumRows(), model.getNumCols(), model.getNumFlagsLeft(), difficulty.BEGINNER);
-			view.addCellListeners(new mouseClickListener());
+			view.initializeMineField(model.getMineField(), model.getNumFlagsLeft(), difficulty.BEGINNER);
+			assist.reset();
+			isGameActive = true;
+			updateProbabilities();
 			view.showGame();
 		}
 	}
@@ -61,11 +187,15 @@ public class MinesweeperController {
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			isFirstClick = true;
-			timer = new Timer(1000, null);
+			timer = new Timer(TIMER_DELAY, null);
+			inputLatency.clear();
 			
+			model.setGenerator(GENERATORS[view.getMineLayout()]);
 			model.setMineField(difficulty.INTERMEDIATE);
-			view.initializeMineField(model.getNumRows(), model.getNumCols(), model.getNumFlagsLeft(), difficulty.INTERMEDIATE);
-			view.addCellListeners(new mouseClickListener());
+			view.initializeMineField(model.getMineField(), model.getNumFlagsLeft(), difficulty.INTERMEDIATE);
+			assist.reset();
+			isGameActive = true;
+			updateProbabilities();
 			view.showGame();
 		}
 	}
@@ -81,95 +211,231 @@ public class MinesweeperController {
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			isFirstClick = true;
-			timer = new Timer(1000, null);
+			timer = new Timer(TIMER_DELAY, null);
+			inputLatency.clear();
 			
+			model.setGenerator(GENERATORS[view.getMineLayout()]);
 			model.setMineField(difficulty.EXPERT);
-			view.initializeMineField(model.getNumRows(), model.getNumCols(), model.getNumFlagsLeft(), difficulty.EXPERT);
-			view.addCellListeners(new mouseClickListener());
+			view.initializeMineField(model.getMineField(), model.getNumFlagsLeft(), difficulty.EXPERT);
+			assist.reset();
+			isGameActive = true;
+			updateProbabilities();
 			view.showGame();
 		}
 	}
 	
+	/*
+	 * Starts solving the mine probabilities of the board as it is now, if the overlay is on.
+	 * The board is copied first, so the solve never touches the model and the UI never waits for it.
+	 */
+	private void updateProbabilities() {
+		if (solverTask != null) {
+			solverTask.cancel(true);
+			solverTask = null;
+		}
+		final int solve = ++numSolves;
+		if (!view.isHeatmapShown() || model.getGameState() != gameState.PLAYING) {
+			view.showProbabilities(null);
+			return;
+		}
+		
+		final byte[] codes = model.getMineField().getCodes();
+		final int numRows = model.getNumRows();
+		final int numCols = model.getNumCols();
+		final int numMinesLeft = model.getNumFlagsLeft();
+		solverTask = solverExecutor.submit(new Runnable() {
+			public void run() {
+				try {
+					final float[] probabilities = solver.solve(codes, numRows, numCols, numMinesLeft);
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							if (solve == numSolves) {
+								view.showProbabilities(probabilities);
+							}
+						}
+					});
+				} catch (InterruptedException e) {
+					// a newer move replaced this solve
+				}
+			}
+		});
+	}
+	
+	/*
+	 * Passes a move from the mouse or keyboard to the model. 
+	 * Model handles the logic and data, then the data (game state) is passed back to the view to update the graphics.
+	 */
+	private void makeMove(int row, int col, boolean isFlag, long inputTime) {
+		if (!isFlag) {
+			if (isFirstClick) {
+				// first click generates the mine field
+				model.generateMineField(row, col);
+				model.generateNumField();
+				
+				isFirstClick = false;
+				
+				// start timer, the model keeps the time so the display tick only reads it
+				model.startTimer();
+				ActionListener timeElapsed = new ActionListener() {
+					public void actionPerformed(ActionEvent e) {
+						if (model.getTimeElapsed() <= 999) {
+							view.updateTimeElapsed(model.getTimeElapsed());
+						}
+					}
+				};
+				timer.addActionListener(timeElapsed);
+				timer.start();
+			}
+			
+			model.reveal(row, col);
+		} else {
+			model.placeFlag(row, col);
+		}
+		updateProbabilities();
+		
+		// painting is queued by now, so this runs once the changed cells are on screen
+		if (!isLatencyPending) {
+			isLatencyPending = true;
+			this.inputTime = inputTime;
+			SwingUtilities.invokeLater(latencyRecorder);
+		}
+		
+		checkGameOver();
+		
+		// update the view, cells are already updated by the model listener
+		view.updateFlagCount(model.getNumFlagsLeft());
+		startAssist();
+	}
+	
+	/*
+	 * Starts the assist's slices if the last move gave it work, the first slice runs after the move is painted.
+	 */
+	private void startAssist() {
+		if (isGameActive && assist.hasWork() && !assistTimer.isRunning()) {
+			assistTimer.start();
+		}
+	}
+	
+	/*
+	 * Runs one slice of the assist, then stops the timer once there's nothing left to do.
+	 * Long chains carry on over later frames so input and painting never wait more than one slice, though a slice
+	 * always finishes the move it started, so one chord that floods a big area can run over the budget.
+	 * The probabilities are only solved again once the chain is done, copying the board after every slice would
+	 * cost more than the budget on a big board and restart the solver before it could ever finish.
+	 */
+	private void runAssist() {
+		if (!isGameActive) {
+			assistTimer.stop();
+			return;
+		}
+		int numMoves = assist.run(System.nanoTime() + ASSIST_BUDGET);
+		hasAssistMoved |= numMoves > 0;
+		boolean isDone = !assist.hasWork();
+		if (isDone) {
+			assistTimer.stop();
+			if (hasAssistMoved) {
+				hasAssistMoved = false;
+				updateProbabilities();
+			}
+		}
+		if (numMoves > 0) {
+			checkGameOver();
+			view.updateFlagCount(model.getNumFlagsLeft());
+		}
+	}
+	
+	/*
+	 * Ends the game if the last move won or lost it, showing the end screen and acting on the player's choice.
+	 */
+	private void checkGameOver() {
+		int option = -1;
+		
+		switch (model.getGameState()) {
+		case WON:
+			isGameActive = false;
+			timer.stop();
+			model.revealAllMines();
+			option = showEndScreen(gameState.WON);
+			break;
+		case LOST:
+			isGameActive = false;
+			timer.stop();
+			model.revealAllMines();
+			option = showEndScreen(gameState.LOST);
+			break;
+		default:
+			break;
+		}
+		
+		// end screen
+		if (option == 0) {
+			// if user chooses to play again
+			view.showMainMenu();
+		} else if (option == 1) {
+			// if user chooses to not play again
+			System.exit(0);
+		}
+	}
+	
 	/**
 	 * Listener class for the mine field.
 	 *
 	 */
 	class mouseClickListener extends MouseAdapter {
 		/**
-		 * Passes user interactions from the view to the model. 
-		 * Model handles the logic and data, then the data (game state) is passed back to the view to update the graphics.
+		 * Finds the clicked cell from the click's position, left click reveals and right click flags.
 		 */
 		@Override
 		public void mouseClicked(MouseEvent m) {
-			// get which cell was clicked and its location
-			String[] cellCoordinate = ((JButton) m.getSource()).getName().split(" ");  // get the name in format "row col"
-			int row = Integer.parseInt(cellCoordinate[0]);
-			int col = Integer.parseInt(cellCoordinate[1]);
+			long clickTime = System.nanoTime();
+			
+			// prevents cells from being clicked after game is won or lost
+			if (!isGameActive) {
+				return;
+			}
+			
+			// get which cell was clicked from where the mine field was clicked, no parsing or allocation
+			int row = view.getRowAt(m.getY());
+			int col = view.getColAt(m.getX());
+			if (row < 0 || col < 0) {
+				return;
+			}
 			
 			if (m.getButton() == MouseEvent.BUTTON1) {
-				// left click
-				
-				if (isFirstClick) {
-					// first click generates the mine field
-					model.generateMineField(row, col);
-					model.generateNumField();
-					
-					isFirstClick = false;
-					
-					// start timer
-					ActionListener timeElapsed = new ActionListener() {
-						public void actionPerformed(ActionEvent e) {
-							model.addTime(1);
-							if (model.getTimeElapsed() <= 999) {
-								view.updateTimeElapsed(model.getTimeElapsed());
-							}
-						}
-					};
-					timer.addActionListener(timeElapsed);
-					timer.start();
-				}
-				
-				model.reveal(row, col);
-				
+				makeMove(row, col, false, clickTime);
 			} else if (m.getButton() == MouseEvent.BUTTON3) {
-				// right click
-				model.placeFlag(row, col);
+				makeMove(row, col, true, clickTime);
 			}
+		}
+	}
+	
+	/**
+	 * Listener class for keyboard play, the arrow keys move the view's cursor.
+	 *
+	 */
+	class keyPressListener extends KeyAdapter {
+		/**
+		 * Space or enter reveals the cell under the cursor, F flags it.
+		 */
+		@Override
+		public void keyPressed(KeyEvent k) {
+			long pressTime = System.nanoTime();
 			
-			int option = -1;
+			if (!isGameActive) {
+				return;
+			}
 			
-			switch (model.getGameState()) {
-			case WON:
-				timer.stop();
-				model.revealAllMines();
-				view.updateMineField(model.getMineField());
-				view.removeCellListeners();
-				option = view.showEndScreen(gameState.WON);
+			switch (k.getKeyCode()) {
+			case KeyEvent.VK_SPACE:
+			case KeyEvent.VK_ENTER:
+				makeMove(view.getCursorRow(), view.getCursorCol(), false, pressTime);
 				break;
-			case LOST:
-				timer.stop();
-				model.revealAllMines();
-				view.updateMineField(model.getMineField());
-				view.removeCellListeners();
-				option = view.showEndScreen(gameState.LOST);
+			case KeyEvent.VK_F:
+				makeMove(view.getCursorRow(), view.getCursorCol(), true, pressTime);
 				break;
 			default:
 				break;
 			}
-			
-			// end screen
-			if (option == 0) {
-				// if user chooses to play again
-				view.showMainMenu();
-			} else if (option == 1) {
-				// if user chooses to not play again
-				System.exit(0);
-			}
-			
-			// update the view
-			view.updateMineField(model.getMineField());
-			view.updateFlagCount(model.getNumFlagsLeft());
-			
 		}
 	}
 }
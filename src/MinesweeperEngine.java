@@ -0,0 +1,54 @@
+/**
+ * Common interface for anything that plays Minesweeper by the model's rules, so DifferentialHarness can check
+ * faster implementations against MinesweeperModel. The first reveal of a game places the mines around it.
+ * @author Jason Wu
+ *
+ */
+public interface MinesweeperEngine {
+
+	/**
+	 * Gets a name for reports.
+	 * @return Name of the implementation.
+	 */
+	String getName();
+
+	/**
+	 * Starts a new game. The same difficulty, seed, and first reveal must give the same board as MinesweeperModel.
+	 * @param difficulty Difficulty of the game.
+	 * @param seed Seed the mines are placed with.
+	 */
+	void reset(difficulty difficulty, long seed);
+
+	/**
+	 * Reveals a cell, or the cells around it if it's a satisfied number.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 */
+	void reveal(int row, int col);
+
+	/**
+	 * Places or removes a flag.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 */
+	void placeFlag(int row, int col);
+
+	/**
+	 * Gets the state of the game.
+	 * @return Won, lost, or still playing.
+	 */
+	gameState getGameState();
+
+	/**
+	 * Gets the number of flags left.
+	 * @return Number of flags left.
+	 */
+	int getNumFlagsLeft();
+
+	/**
+	 * Writes what the player sees, one byte per cell row by row: the digit (0-8) for revealed cells,
+	 * 9 for hidden, 10 for flagged, and 11 for mines.
+	 * @param codes Array of at least rows * columns bytes.
+	 */
+	void getBoard(byte[] codes);
+}
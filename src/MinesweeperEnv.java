@@ -0,0 +1,160 @@
+/**
+ * Reinforcement learning environment over a single game, in the style of a Gym environment.
+ * Actions 0 to cells - 1 reveal that cell and cells to 2 * cells - 1 flag it, cells counted row by row.
+ * The reward is the fraction of safe cells a move revealed, -1 for hitting a mine, and +1 more for winning.
+ * @author Jason Wu
+ *
+ */
+public class MinesweeperEnv {
+	/**
+	 * Observation value of a hidden cell, revealed cells are their digit divided by 8.
+	 */
+	public static final float HIDDEN = -1;
+
+	/**
+	 * Observation value of a flagged cell.
+	 */
+	public static final float FLAG = -2;
+
+	/**
+	 * Observation value of a revealed mine.
+	 */
+	public static final float MINE = -3;
+
+	private final MinesweeperModel MODEL;
+	private final difficulty DIFFICULTY;
+
+	private int numRevealed;  // cells revealed by the current step
+
+	/**
+	 * Constructs an environment, reset must be called before the first step.
+	 * @param difficulty Difficulty of every episode.
+	 */
+	public MinesweeperEnv(difficulty difficulty) {
+		MODEL = new MinesweeperModel();
+		DIFFICULTY = difficulty;
+
+		MODEL.addListener(new MinesweeperListener() {
+			public void modelChanged(ModelEventBatch events) {
+				for (int i = 0; i < events.size(); i++) {
+					if (events.getType(i) == modelEvent.CELL_REVEALED) {
+						numRevealed++;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Starts a new episode.
+	 * @param seed Seed the mines are placed with.
+	 */
+	public void reset(long seed) {
+		MODEL.setMineField(DIFFICULTY);
+		MODEL.setSeed(seed);
+	}
+
+	/**
+	 * Sets how mines are placed in later episodes.
+	 * @param generator Generator to use, uniform by default.
+	 */
+	public void setGenerator(MineGenerator generator) {
+		MODEL.setGenerator(generator);
+	}
+
+	/**
+	 * Gets the number of possible actions, two per cell.
+	 * @return Number of actions.
+	 */
+	public int getNumActions() {
+		return 2 * getNumCells();
+	}
+
+	/**
+	 * Gets the number of values in an observation, one per cell.
+	 * @return Number of cells.
+	 */
+	public int getNumCells() {
+		return MODEL.getNumRows() * MODEL.getNumCols();
+	}
+
+	/**
+	 * Makes one move. Does nothing once the episode is over.
+	 * @param action Cell to reveal (0 to cells - 1) or cell to flag plus cells.
+	 * @return Reward for the move.
+	 */
+	public float step(int action) {
+		if (isDone()) {
+			return 0;
+		}
+
+		int numCells = getNumCells();
+		int cell = action % numCells;
+		int row = cell / MODEL.getNumCols();
+		int col = cell % MODEL.getNumCols();
+
+		numRevealed = 0;
+		if (action >= numCells) {
+			MODEL.placeFlag(row, col);
+		} else {
+			if (!MODEL.isMineFieldGenerated()) {
+				MODEL.generateMineField(row, col);
+				MODEL.generateNumField();
+			}
+			MODEL.reveal(row, col);
+		}
+
+		switch (MODEL.getGameState()) {
+		case LOST:
+			return -1;
+		case WON:
+			return (float) numRevealed / (numCells - MODEL.getMineField().getNumMines()) + 1;
+		default:
+			return (float) numRevealed / (numCells - MODEL.getMineField().getNumMines());
+		}
+	}
+
+	/**
+	 * Gets whether the episode is over.
+	 * @return True if the game was won or lost.
+	 */
+	public boolean isDone() {
+		return MODEL.getGameState() != gameState.PLAYING;
+	}
+
+	/**
+	 * Gets the state of the game.
+	 * @return Won, lost, or still playing.
+	 */
+	public gameState getGameState() {
+		return MODEL.getGameState();
+	}
+
+	/**
+	 * Writes the visible board into an array without allocating, one value per cell row by row.
+	 * @param observation Array to write into, reused between steps.
+	 * @param offset Index to start writing at.
+	 */
+	public void observe(float[] observation, int offset) {
+		Minefield mineField = MODEL.getMineField();
+		for (int i = 0; i < mineField.getNumRows(); i++) {
+			for (int j = 0; j < mineField.getNumCols(); j++) {
+				switch (mineField.getState(i, j)) {
+				case REVEALED:
+					observation[offset] = mineField.getNumNeighboringMines(i, j) / 8f;
+					break;
+				case FLAG:
+					observation[offset] = FLAG;
+					break;
+				case MINE:
+					observation[offset] = MINE;
+					break;
+				default:
+					observation[offset] = HIDDEN;
+					break;
+				}
+				offset++;
+			}
+		}
+	}
+}
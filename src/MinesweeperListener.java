@@ -0,0 +1,13 @@
+/**
+ * Listener for changes made by the model, so other components don't have to re-read the whole mine field.
+ * @author Jason Wu
+ *
+ */
+public interface MinesweeperListener {
+	
+	/**
+	 * Called once after every move with all the changes the move made (a flood reveal is a single call).
+	 * @param events Changes made by the move, the batch is reused so it's only valid during this call.
+	 */
+	void modelChanged(ModelEventBatch events);
+}
@@ -1,4 +1,7 @@
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Minesweeper model component that handles game data and logic.
@@ -7,13 +10,34 @@ import java.util.Random;
  */
 public class MinesweeperModel {
 	private Minefield mineField;
+	private byte[] pagedOutMineField;  // packed mine field while paged out, null otherwise
+	private int pagedOutRows;
+	private int pagedOutCols;
+	private int pagedOutMines;
+	private boolean isGenerated;  // defaults to false
+	private BoardMetrics boardMetrics;
+	private difficulty difficulty;
+	private long seed;
+	private MineGenerator generator = new UniformMineGenerator();
 	
 	private int numFlagsLeft;
-	private int timeElapsed;  // seconds
+	private int numSafeHidden;  // cells without mines that are still hidden, the game is won at 0
+	private int numClicks;
+	private boolean isAssisted;  // true once a move was made for the player
+	private long startTime;  // System.nanoTime() at the first click
+	private long endTime;  // System.nanoTime() when the game was won or lost
+	private boolean hasStarted;  // defaults to false
+	private boolean hasEnded;  // defaults to false
 	
 	private boolean hasLost; // defaults to false
 	private boolean hasWon; // defaults to false
 	
+	private ForkJoinPool revealPool;  // null for the sequential flood reveal
+	private int revealTileSize;
+	
+	private ArrayList<MinesweeperListener> listeners = new ArrayList<MinesweeperListener>();
+	private ModelEventBatch events = new ModelEventBatch();  // changes made by the current move
+	
 	// no constructor to maintain MVC separation of data and interface
 	
 /*
@@ -35,27 +59,158 @@ public class MinesweeperModel {
 	 * @param difficulty Beginner (8x8, 10 mines), intermediate (16x16, 40 mines), or expert (16x30, 99 mines).
 	 */
 	public void setMineField(difficulty difficulty) {  
-		// makes sure data resets on new game
-		timeElapsed = 0;
-		hasLost = false;
-		hasWon = false;
-		
 		switch (difficulty) {
 		case BEGINNER:
-			mineField = new Minefield(8, 8, 10);
+			setMineField(new Minefield(8, 8, 10));
 			break;
 		case INTERMEDIATE:
-			mineField = new Minefield(16, 16, 40);
+			setMineField(new Minefield(16, 16, 40));
 			break;
 		case EXPERT:
-			mineField = new Minefield(16, 30, 99);
+			setMineField(new Minefield(16, 30, 99));
 			break;
 		default:
 			break;
 		}
+		this.difficulty = difficulty;
+	}
+	
+	/**
+	 * Starts a new game on a custom mine field, e.g. a giant off-heap board. The difficulty is null for these games.
+	 * @param mineField Empty mine field to play on.
+	 */
+	public void setMineField(Minefield mineField) {
+		// makes sure data resets on new game
+		this.mineField = mineField;
+		difficulty = null;
+		seed = new Random().nextLong();
+		boardMetrics = null;
+		isGenerated = false;
+		pagedOutMineField = null;
+		hasStarted = false;
+		hasEnded = false;
+		numClicks = 0;
+		isAssisted = false;
+		hasLost = false;
+		hasWon = false;
 		numFlagsLeft = mineField.getNumMines();
 	}
 	
+	/**
+	 * Gets the difficulty of the current game.
+	 * @return Difficulty set by setMineField, null for a custom mine field.
+	 */
+	public difficulty getDifficulty() {
+		return difficulty;
+	}
+	
+	/**
+	 * Gets the seed the mines are placed with, the same seed and first click always give the same mine field.
+	 * @return Seed of the current game.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Sets the seed the mines are placed with, used to replay a game. Must be called before generateMineField.
+	 * @param seed Seed to use.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * Gets how the mines are placed.
+	 * @return Generator used by generateMineField.
+	 */
+	public MineGenerator getGenerator() {
+		return generator;
+	}
+	
+	/**
+	 * Sets how the mines are placed for this game and the ones after it. Must be called before generateMineField.
+	 * @param generator Generator to use, uniform by default.
+	 */
+	public void setGenerator(MineGenerator generator) {
+		this.generator = generator;
+	}
+	
+	/**
+	 * Gets the difficulty metrics (3BV, openings, islands) of the mine field.
+	 * @return Board metrics, null until the number field is generated.
+	 */
+	public BoardMetrics getBoardMetrics() {
+		return boardMetrics;
+	}
+	
+	/**
+	 * Gets the click efficiency of the game so far, 3BV divided by the number of clicks.
+	 * @return Efficiency, 1 means no wasted clicks. 0 before the number field is generated or the first click.
+	 */
+	public double getEfficiency() {
+		if (boardMetrics == null || numClicks == 0) {
+			return 0;
+		}
+		return (double) boardMetrics.get3BV() / numClicks;
+	}
+	
+	/**
+	 * Gets the number of clicks (reveals and flags) made this game.
+	 * @return Number of clicks.
+	 */
+	public int getNumClicks() {
+		return numClicks;
+	}
+	
+	/**
+	 * Gets whether any move this game was made for the player, e.g. by the assist.
+	 * @return True if placeAssistedFlag or revealAssisted was called this game.
+	 */
+	public boolean isAssisted() {
+		return isAssisted;
+	}
+	
+	/**
+	 * Gets whether the mines have been placed yet.
+	 * @return True after generateMineField, false before the first click.
+	 */
+	public boolean isMineFieldGenerated() {
+		return isGenerated;
+	}
+	
+	/**
+	 * Packs the mine field into one byte per cell and drops the cell objects, used to keep idle games small.
+	 * Nothing else can be called on the model until pageIn.
+	 */
+	public void pageOut() {
+		if (pagedOutMineField == null) {
+			pagedOutMineField = mineField.pack();
+			pagedOutRows = mineField.getNumRows();
+			pagedOutCols = mineField.getNumCols();
+			pagedOutMines = mineField.getNumMines();
+			mineField = null;
+		}
+	}
+	
+	/**
+	 * Rebuilds the mine field packed by pageOut, does nothing if it isn't paged out.
+	 */
+	public void pageIn() {
+		if (pagedOutMineField != null) {
+			mineField = new Minefield(pagedOutRows, pagedOutCols, pagedOutMines, pagedOutMineField);
+			pagedOutMineField = null;
+		}
+	}
+	
+	/**
+	 * Gets whether the mine field is currently paged out.
+	 * @return True between pageOut and pageIn.
+	 */
+	public boolean isPagedOut() {
+		return pagedOutMineField != null;
+	}
+	
 	/**
 	 * Gets the number of rows of the mine field.
 	 * @return Number of rows.
@@ -81,19 +236,59 @@ public class MinesweeperModel {
 	}
 	
 	/**
-	 * Gets the time elapsed since the first click.
-	 * @return Time elapsed in seconds.
+	 * Gets the time elapsed since the first click, stops counting once the game is won or lost.
+	 * @return Time elapsed in whole seconds.
 	 */
 	public int getTimeElapsed() {
-		return timeElapsed;
+		return (int) (getTimeElapsedNanos() / 1000000000L);
 	}
 	
 	/**
-	 * Increments the time elapsed by a certain amount of seconds.
-	 * @param seconds Seconds to increment by.
+	 * Gets the time elapsed since the first click, measured with the monotonic System.nanoTime clock.
+	 * @return Time elapsed in nanoseconds, 0 before the first click.
 	 */
-	public void addTime(int seconds) {
-		timeElapsed += seconds;
+	public long getTimeElapsedNanos() {
+		if (!hasStarted) {
+			return 0;
+		}
+		return (hasEnded ? endTime : System.nanoTime()) - startTime;
+	}
+	
+	/**
+	 * Starts the game clock, called on the first click. Does nothing if the clock has already started.
+	 */
+	public void startTimer() {
+		if (!hasStarted) {
+			startTime = System.nanoTime();
+			hasStarted = true;
+		}
+	}
+	
+	/**
+	 * Makes flood reveals split the board into tiles that are revealed in parallel, for very large boards.
+	 * The cells revealed are exactly the same as the sequential flood reveal.
+	 * @param pool Pool to run the tiles on, null to go back to the sequential flood reveal.
+	 * @param tileSize Width and height of a tile in cells.
+	 */
+	public void setParallelReveal(ForkJoinPool pool, int tileSize) {
+		revealPool = pool;
+		revealTileSize = tileSize;
+	}
+	
+	/**
+	 * Adds a listener that is told about every change the model makes.
+	 * @param listener Listener to add.
+	 */
+	public void addListener(MinesweeperListener listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Removes a listener added with addListener.
+	 * @param listener Listener to remove.
+	 */
+	public void removeListener(MinesweeperListener listener) {
+		listeners.remove(listener);
 	}
 	
 /*
@@ -103,52 +298,36 @@ public class MinesweeperModel {
  */
 
 	/**
-	 * Places the mines on the mine field based on the first click (first click cannot reveal a bomb).
+	 * Places the mines on the mine field based on the first click (first click cannot reveal a bomb), using the generator.
 	 * @param startingRow The row where the first click happened.
 	 * @param startingCol The column where the first click happened.
 	 */
 	public void generateMineField(int startingRow, int startingCol) {
-
-		Random rand = new Random();
+		generator.placeMines(mineField, startingRow, startingCol, seed);
+		isGenerated = true;
 		
-		int emptySquaresLeft = mineField.getNumRows() * mineField.getNumCols()- mineField.getNeighboring(startingRow, startingCol, false) - 1;  // neighboring skips the initial cell, so - 1
-		int minesLeft = mineField.getNumMines();
-		int row = 0;
-		int col = 0;
-		
-		while (minesLeft > 0) {
-			// skip the 3x3 area surrounding the starting location
-			if (!(Math.abs(row - startingRow) <= 1 && Math.abs(col - startingCol) <= 1)) {
-				// minesLeft/emptySquaresLeft chance of placing a mine
-				if (rand.nextInt(emptySquaresLeft) < minesLeft) {
-					Cell cell = mineField.getCell(row, col);
-					
-					cell.setIsMine();
-					minesLeft--;
+		// count the hidden cells without mines once, from here on moves keep the count up to date
+		numSafeHidden = 0;
+		for (int i = 0; i < mineField.getNumRows(); i++) {
+			for (int j = 0; j < mineField.getNumCols(); j++) {
+				if (!mineField.getIsMine(i, j) && mineField.getState(i, j) == buttonState.HIDDEN) {
+					numSafeHidden++;
 				}
 			}
-			emptySquaresLeft--;
-			// increment
-			if (col == mineField.getNumCols() - 1) {
-				row++;
-				col = 0;
-			} else {
-				col++;
-			}
 		}
 	}
+
 	
 	/**
-	 * Sets the number of neighboring mines for every cell on the mine field.
+	 * Sets the number of neighboring mines for every cell on the mine field, then computes the board metrics.
 	 */
 	public void generateNumField() {
 		for (int i = 0; i < mineField.getNumRows(); i++) {
 			for (int j = 0; j < mineField.getNumCols(); j++) {
-				Cell cell = mineField.getCell(i, j);
-				cell.setNumNeighboringMines(mineField.getNeighboring(i, j, true));
-		
+				mineField.setNumNeighboringMines(i, j, mineField.getNeighboring(i, j, true));
 			}
 		}
+		boardMetrics = new BoardMetrics(mineField);
 	}
 	
 /*
@@ -178,13 +357,13 @@ public class MinesweeperModel {
 	public void revealAllMines() {  
 		for (int i = 0; i < mineField.getNumRows(); i++) {
 			for (int j = 0; j < mineField.getNumCols(); j++) {
-				Cell cell = mineField.getCell(i, j);
-				
-				if (cell.getIsMine() && cell.getState() != buttonState.MINE) {  
-					cell.setState(buttonState.MINE);
+				if (mineField.getIsMine(i, j) && mineField.getState(i, j) != buttonState.MINE) {  
+					mineField.setState(i, j, buttonState.MINE);
+					events.add(modelEvent.MINE_REVEALED, i, j);
 				}
 			}
 		}
+		fireEvents();
 	}
 	
 	/**
@@ -193,37 +372,85 @@ public class MinesweeperModel {
 	 * @param col Column of the cell.
 	 */
 	public void placeFlag(int row, int col) {
-		Cell cell = mineField.getCell(row, col);
-		
-		switch(cell.getState()) {
+		numClicks++;
+		toggleFlag(row, col);
+	}
+	
+	/**
+	 * Sets or removes a flag like placeFlag for a move the player didn't make, it isn't counted as a click and
+	 * marks the game as assisted.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 */
+	public void placeAssistedFlag(int row, int col) {
+		isAssisted = true;
+		toggleFlag(row, col);
+	}
+	
+	/**
+	 * Reveal method whenever a button click happens.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 */
+	public void reveal(int row, int col) {
+		numClicks++;
+		revealOrChord(row, col);
+	}
+	
+	/**
+	 * Reveals or chords a cell like reveal for a move the player didn't make, it isn't counted as a click and
+	 * marks the game as assisted.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 */
+	public void revealAssisted(int row, int col) {
+		isAssisted = true;
+		revealOrChord(row, col);
+	}
+/*
+ * Private helper methods
+ * *********************************************************************************************************
+ * *********************************************************************************************************
+ */
+	
+	/*
+	 * Sets the flag on a hidden cell or removes it from a flagged one.
+	 */
+	private void toggleFlag(int row, int col) {
+		switch(mineField.getState(row, col)) {
 		case HIDDEN:
-			cell.setState(buttonState.FLAG);
+			mineField.setState(row, col, buttonState.FLAG);
 			numFlagsLeft--;
+			if (!mineField.getIsMine(row, col)) {
+				numSafeHidden--;
+			}
+			events.add(modelEvent.FLAGGED, row, col);
 			break;
 		case FLAG:
-			cell.setState(buttonState.HIDDEN);
+			mineField.setState(row, col, buttonState.HIDDEN);
 			numFlagsLeft++;
+			if (!mineField.getIsMine(row, col)) {
+				numSafeHidden++;
+			}
+			events.add(modelEvent.UNFLAGGED, row, col);
 			break;
 		default:
 			break;
 		}
+		fireEvents();
 	}
 	
-	/**
-	 * Reveal method whenever a button click happens.
-	 * @param row Row of the cell.
-	 * @param col Column of the cell.
+	/*
+	 * Reveals a hidden cell, or the cells around a number whose flags are all placed.
 	 */
-	public void reveal(int row, int col) {
-		Cell cell = mineField.getCell(row, col);
-		
-		switch (cell.getState()) {
+	private void revealOrChord(int row, int col) {
+		switch (mineField.getState(row, col)) {
 		case HIDDEN:
 			revealCell(row, col);
 			break;
 		case REVEALED:
 			
-			int digit = cell.getNumNeighboringMines();
+			int digit = mineField.getNumNeighboringMines(row, col);
 			
 			// if number cell and surrounding hidden cells are equal to the digit, then reveal surrounding
 			if (digit > 0 && mineField.getNeighboring(row, col, buttonState.FLAG) == digit) {  
@@ -233,12 +460,13 @@ public class MinesweeperModel {
 		default:
 			break;
 		}
+		
+		if (events.size() > 0 && checkHasWon()) {
+			events.add(modelEvent.GAME_WON, -1, -1);
+			stopTimer();
+		}
+		fireEvents();
 	}
-/*
- * Private helper methods
- * *********************************************************************************************************
- * *********************************************************************************************************
- */
 	
 	/*
 	 * Reveals surrounding cells when a cell with a digit is clicked.
@@ -247,8 +475,7 @@ public class MinesweeperModel {
 		for (int i = row - 1; i < row + 2; i++) {
 			for (int j = col - 1; j < col + 2; j++) {
 				if (i >= 0 && i < mineField.getNumRows() && j >= 0 && j < mineField.getNumCols()) {
-					Cell cell = mineField.getCell(i, j);
-					if (cell.getState() == buttonState.HIDDEN) {
+					if (mineField.getState(i, j) == buttonState.HIDDEN) {
 						revealCell(i, j);
 					}
 				}
@@ -260,16 +487,18 @@ public class MinesweeperModel {
 	 * Reveals the square if it's not a flag and does a flood reveal if the square is empty. 
 	 */
 	private void revealCell(int row, int col) {
-		Cell cell = mineField.getCell(row, col);
-		
-		if (cell.getState() != buttonState.FLAG) {
-			if (cell.getIsMine()) {  
+		if (mineField.getState(row, col) != buttonState.FLAG) {
+			if (mineField.getIsMine(row, col)) {  
 				// if a mine is revealed
-				cell.setState(buttonState.MINE);
+				mineField.setState(row, col, buttonState.MINE);
 				hasLost = true;
-			} else if (cell.getNumNeighboringMines() > 0) {  
+				stopTimer();
+				events.add(modelEvent.MINE_HIT, row, col);
+			} else if (mineField.getNumNeighboringMines(row, col) > 0) {  
 				// if a number cell is revealed
-				cell.setState(buttonState.REVEALED);
+				mineField.setState(row, col, buttonState.REVEALED);
+				numSafeHidden--;
+				events.add(modelEvent.CELL_REVEALED, row, col);
 			} else {  
 				// blank square
 				floodReveal(row, col);
@@ -278,48 +507,102 @@ public class MinesweeperModel {
 	}
 	
 	/*
-	 * Recursively reveals all adjacent empty cells when an empty cell is clicked.
-	 * Stops flooding after revealing the first digit cell adjacent to a revealed empty cell.
+	 * Reveals the opening around an empty cell: every neighbor of a revealed empty cell, and every empty cell
+	 * directly beside (not diagonal to) a revealed number. Uses a stack instead of recursion so huge openings
+	 * can't overflow, and the result doesn't depend on the order cells are visited in.
 	 */
-	private void floodReveal(int row, int col) {  // not sure if I have to account for where flags are placed
-		Cell cell = mineField.getCell(row, col);
+	private void floodReveal(int row, int col) {
+		int numRows = mineField.getNumRows();
+		int numCols = mineField.getNumCols();
 		
-		if (cell.getState() == buttonState.REVEALED) {
-			return;
-		} else if (cell.getIsMine() || (cell.getNumNeighboringMines() > 0 && mineField.getNeighboring(row, col, 0, buttonState.REVEALED) == 0)) {  
-			// if there are mines surrounding the square and it's not adjacent to an already revealed empty square
+		if (revealPool != null) {
+			ShardedReveal.Result result = new ShardedReveal(mineField, revealPool, revealTileSize).reveal(row, col);
+			numSafeHidden -= result.getNumHiddenRevealed();
+			for (int i = 0; i < result.getNumRevealed(); i++) {
+				events.add(modelEvent.CELL_REVEALED, result.getRevealed(i) / numCols, result.getRevealed(i) % numCols);
+			}
 			return;
-		} else {
-			cell.setState(buttonState.REVEALED);  // reveal the square
 		}
-		if (row != mineField.getNumRows() - 1) {
-			floodReveal(row + 1, col);
+		
+		int[] stack = new int[64];
+		int size = 0;
+		if (floodRevealCell(row, col)) {
+			stack[size++] = row * numCols + col;
 		}
-		if (row != 0) {
-			floodReveal(row - 1, col);
+		
+		while (size > 0) {
+			int current = stack[--size];
+			int currentRow = current / numCols;
+			int currentCol = current % numCols;
+			boolean isEmpty = mineField.getNumNeighboringMines(currentRow, currentCol) == 0;
+			
+			for (int i = Math.max(currentRow - 1, 0); i <= Math.min(currentRow + 1, numRows - 1); i++) {
+				for (int j = Math.max(currentCol - 1, 0); j <= Math.min(currentCol + 1, numCols - 1); j++) {
+					// empty cells spread to all 8 neighbors, numbers only to empty cells beside them
+					if ((i == currentRow) == (j == currentCol)) {
+						if (!isEmpty || (i == currentRow && j == currentCol)) {
+							continue;
+						}
+					} else if (!isEmpty && mineField.getNumNeighboringMines(i, j) != 0) {
+						continue;
+					}
+					
+					if (floodRevealCell(i, j)) {
+						if (size == stack.length) {
+							stack = Arrays.copyOf(stack, size * 2);
+						}
+						stack[size++] = i * numCols + j;
+					}
+				}
+			}
 		}
-		if (col != mineField.getNumCols() - 1) {
-			floodReveal(row, col + 1);
+	}
+	
+	/*
+	 * Reveals one cell of a flood reveal, flags included. Returns false if it was already revealed or is a mine.
+	 */
+	private boolean floodRevealCell(int row, int col) {
+		buttonState state = mineField.getState(row, col);
+		
+		if (state == buttonState.REVEALED || mineField.getIsMine(row, col)) {
+			return false;
 		}
-		if (col != 0) {
-			floodReveal(row, col - 1);
+		if (state == buttonState.HIDDEN) {
+			numSafeHidden--;
 		}
+		mineField.setState(row, col, buttonState.REVEALED);  // reveal the square
+		events.add(modelEvent.CELL_REVEALED, row, col);
+		return true;
 	}
 	
 	/*
-	 * Game is won when all cells without mines are revealed.
+	 * Stamps the end of the game the first time it's won or lost.
 	 */
-	private boolean checkHasWon() {
-		for (int i = 0; i < mineField.getNumRows(); i++) {
-			for (int j = 0; j < mineField.getNumCols(); j++) {
-				Cell cell = mineField.getCell(i, j);
-				
-				if (hasLost || (!cell.getIsMine() && cell.getState() == buttonState.HIDDEN)) {  // if has lost or not all empty squares are revealed
-					return false;
-				}
+	private void stopTimer() {
+		if (hasStarted && !hasEnded) {
+			endTime = System.nanoTime();
+			hasEnded = true;
+		}
+	}
+	
+	/*
+	 * Sends the changes made by the current move to every listener in one call, then starts a new batch.
+	 */
+	private void fireEvents() {
+		if (events.size() > 0) {
+			for (MinesweeperListener listener : listeners) {
+				listener.modelChanged(events);
 			}
+			events.clear();
 		}
-		return true;
 	}
 	
+	/*
+	 * Game is won when all cells without mines are revealed, kept as a count so checking doesn't scan the board.
+	 */
+	private boolean checkHasWon() {
+		return isGenerated && !hasLost && numSafeHidden == 0;
+	}
+
+	
 }
\ No newline at end of file
@@ -1,4 +1,5 @@
 import java.awt.event.ActionListener;
+import java.awt.event.KeyListener;
 import java.awt.event.MouseAdapter;
 import java.awt.GridLayout;
 import java.awt.CardLayout;
@@ -13,6 +14,9 @@ import javax.swing.JPanel;
 import javax.swing.SwingConstants;
 import javax.swing.JLabel;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JScrollPane;
 import javax.swing.border.BevelBorder;
 import javax.swing.border.LineBorder;
 import javax.swing.ImageIcon;
@@ -33,22 +37,28 @@ public class MinesweeperView {
 	private JPanel cardPanel;
 	private JPanel mainMenuPanel;
 	private JPanel gamePanel;
-	private JPanel mineField;
+	private MinefieldPanel mineField;
+	private JScrollPane mineFieldScroller;
+	private Minimap minimap;
 	private JPanel gameInfoFormat;
 	
 	private ImageIcon flagIcon;
 	private ImageIcon mineIcon;
+	private TileAtlas tileAtlas;
 	
 	private JLabel title;
 	private JButton beginner;
 	private JButton intermediate;
 	private JButton expert;
+	private JPanel mineLayoutFormat;
+	private JComboBox<String> mineLayout;
 	
-	private JButton[][] buttonArray;
-	private int numRows;
-	private int numCols;
 	private JLabel numFlagsLeft;
+	private int shownFlagCount = -1;
+	private int shownTime = -1;
 	private JLabel timeElapsed;
+	private JCheckBox heatmap;
+	private JCheckBox assist;
 	
 	/**
 	 * Constructs a GUI with all the necessary components and format.
@@ -63,14 +73,20 @@ public class MinesweeperView {
 		
 		frame = new JFrame();
 		cardPanel = new JPanel(new CardLayout());
-		mainMenuPanel = new JPanel(new GridLayout(4, 1));
+		mainMenuPanel = new JPanel(new GridLayout(5, 1));
 		//gamePanel = new JPanel(new BoxLayout(gamePanel, BoxLayout.Y_AXIS));  
 		gamePanel = new JPanel(new BorderLayout());
-		mineField = new JPanel();
 		gameInfoFormat = new JPanel(new FlowLayout());
 		
 		flagIcon = createImageIcon("flag.png", "flag");
 		mineIcon = createImageIcon("mine.png", "mine");
+		tileAtlas = new TileAtlas(flagIcon == null ? null : flagIcon.getImage(), mineIcon == null ? null : mineIcon.getImage(), 1);
+		
+		// the mine field is one painted panel that scrolls and zooms, with a minimap once it's bigger than the window
+		mineField = new MinefieldPanel(tileAtlas);
+		mineFieldScroller = new JScrollPane(mineField);
+		minimap = new Minimap(mineField, mineFieldScroller.getViewport());
+		mineField.setMinimap(minimap);
 		
 		// create main menu
 		
@@ -94,20 +110,35 @@ public class MinesweeperView {
 		intermediate.setBackground(Color.LIGHT_GRAY);
 		expert.setBackground(Color.LIGHT_GRAY);
 		
+		// how the mines of the next game are placed, the controller fills in the choices
+		mineLayout = new JComboBox<String>();
+		mineLayoutFormat = new JPanel(new FlowLayout());
+		mineLayoutFormat.add(new JLabel("Mines:"));
+		mineLayoutFormat.add(mineLayout);
+		
 		mainMenuPanel.add(title);
 		mainMenuPanel.add(beginner);
 		mainMenuPanel.add(intermediate);
 		mainMenuPanel.add(expert);
+		mainMenuPanel.add(mineLayoutFormat);
 		
 		// create game page
 		numFlagsLeft = new JLabel();
 		timeElapsed = new JLabel();
 		gameInfoFormat.add(numFlagsLeft);
 		gameInfoFormat.add(timeElapsed);
+		heatmap = new JCheckBox("Probabilities");
+		heatmap.setFocusable(false);  // keeps keyboard play on the mine field
+		gameInfoFormat.add(heatmap);
+		assist = new JCheckBox("Assist");
+		assist.setFocusable(false);
+		gameInfoFormat.add(assist);
 
 		gameInfoFormat.setBorder(new LineBorder(Color.BLACK, 2));
 		
 		gamePanel.add(gameInfoFormat, BorderLayout.NORTH);
+		gamePanel.add(mineFieldScroller, BorderLayout.CENTER);
+		gamePanel.add(minimap, BorderLayout.EAST);
 		// have to make icons
 		cardPanel.add("Main Menu", mainMenuPanel);
 		cardPanel.add("Game", gamePanel);
@@ -126,6 +157,7 @@ public class MinesweeperView {
 	public void showGame() {
 		CardLayout c = (CardLayout)(cardPanel.getLayout());
 		c.show(cardPanel, "Game");
+		mineField.requestFocusInWindow();  // for keyboard play
 	}
 	
 	/**
@@ -140,15 +172,25 @@ public class MinesweeperView {
 	/**
 	 * Displays the end screen pop-up.
 	 * @param result Whether the player won or lost.
+	 * @param timeMillis Time taken in milliseconds.
+	 * @param bestTimeMillis Best winning time on this difficulty in milliseconds, -1 if there are no wins.
+	 * @param winRate Fraction of games won on this difficulty, -1 if there are no statistics.
+	 * @param averageLatency Average time from a click to the screen updating in milliseconds.
+	 * @param worstLatency 95th percentile time from a click to the screen updating in milliseconds.
 	 * @return returns 0 for play again or 1 for no.
 	 */
-	public int showEndScreen(gameState result) {		
+	public int showEndScreen(gameState result, int timeMillis, int bestTimeMillis, double winRate, 
+			double averageLatency, double worstLatency) {		
+		String stats = String.format("Time: %.3f s\nBest: %s\nWin rate: %s\nInput latency: %.1f ms (95%%: %.1f ms)", 
+				timeMillis / 1000.0, bestTimeMillis < 0 ? "-" : String.format("%.3f s", bestTimeMillis / 1000.0), 
+				winRate < 0 ? "-" : String.format("%.1f%%", winRate * 100), averageLatency, worstLatency);
+		
 		switch (result) {
 		case WON:
-			return JOptionPane.showConfirmDialog(frame, "Congrats, you won!\nPlay again?", "TAKE THE W", 
+			return JOptionPane.showConfirmDialog(frame, "Congrats, you won!\n" + stats + "\nPlay again?", "TAKE THE W", 
 					JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE);
 		case LOST:
-			return JOptionPane.showConfirmDialog(frame, "Oops, you lost!\nPlay again?", "TAKE THE L", 
+			return JOptionPane.showConfirmDialog(frame, "Oops, you lost!\n" + stats + "\nPlay again?", "TAKE THE L", 
 					JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE);
 		default:
 			return 1;
@@ -157,53 +199,29 @@ public class MinesweeperView {
 	
 	/**
 	 * Initializes the mine field graphics based on the difficulty.
-	 * @param numRows Number of rows.
-	 * @param numCols Number of columns.
+	 * @param mineField Mine field from the model, drawn directly so the view keeps no copy of the board.
 	 * @param numInitialFlags Starting number of flags.
-	 * @param difficulty Difficulty chosen.
+	 * @param difficulty Difficulty chosen, null for a custom board.
 	 */
-	public void initializeMineField(int numRows, int numCols, int numInitialFlags, difficulty difficulty) {
-		mineField.removeAll();  // makes sure mine field resets on new game
-		
-		this.numRows = numRows;
-		this.numCols = numCols;
-		
-		buttonArray = new JButton[numRows][numCols];
-		
-		for (int i = 0; i < numRows; i++) {
-			for (int j = 0; j < numCols; j++) {
-				JButton cell = new JButton();
-				cell.setName(String.valueOf(i) + " " + String.valueOf(j));  // add the name
-				cell.setOpaque(true);
-				cell.setBackground(Color.LIGHT_GRAY);
-				cell.setBorder(new BevelBorder(BevelBorder.RAISED));
-				buttonArray[i][j] = cell;
-			}
-		}
+	public void initializeMineField(Minefield mineField, int numInitialFlags, difficulty difficulty) {
+		this.mineField.setMineField(mineField);
 		
-		mineField.setLayout(new GridLayout(numRows, numCols));
-		
-		for (int i = 0; i < numRows; i++) {
-			for (int j = 0; j < numCols; j++) {
-				mineField.add(buttonArray[i][j]);
+		// adjust frame size to fit mine field, custom boards keep the current size and scroll
+		if (difficulty != null) {
+			switch (difficulty) {
+			case BEGINNER:
+				frame.setSize(BEGINNER_SIZE, BEGINNER_SIZE);
+				break;
+			case INTERMEDIATE:
+				frame.setSize(INTERMEDIATE_SIZE, INTERMEDIATE_SIZE);
+				break;
+			case EXPERT:
+				frame.setSize(EXPERT_WIDTH, EXPERT_HEIGHT);
+				break;
+			default:
+				break;
 			}
 		}
-		gamePanel.add(mineField, BorderLayout.CENTER);
-		
-		// adjust frame size to fit mine field
-		switch (difficulty) {
-		case BEGINNER:
-			frame.setSize(BEGINNER_SIZE, BEGINNER_SIZE);
-			break;
-		case INTERMEDIATE:
-			frame.setSize(INTERMEDIATE_SIZE, INTERMEDIATE_SIZE);
-			break;
-		case EXPERT:
-			frame.setSize(EXPERT_WIDTH, EXPERT_HEIGHT);
-			break;
-		default:
-			break;
-		}
 		
 		// set initial flag count and time elapsed
 		updateFlagCount(numInitialFlags);
@@ -212,50 +230,36 @@ public class MinesweeperView {
 	
 	/**
 	 * Updates the mine field graphics using data from the mine field stored in the model component.
-	 * @param mineField Mine field object from the model.
 	 */
-	public void updateMineField(Minefield mineField) {
-		for (int i = 0; i < numRows; i++) {
-			for (int j = 0; j < numCols; j++) {
-				Cell cell = mineField.getCell(i, j);
-				JButton button = buttonArray[i][j];
-				
-				switch (cell.getState()) {
-				case HIDDEN:
-					button.setText("");
-					button.setIcon(null);
-					break;
-				case MINE:
-					button.setIcon(mineIcon);
-					break;
-				case FLAG:
-					button.setIcon(flagIcon);
-					break;
-				case REVEALED:
-					int digit = cell.getNumNeighboringMines();
-					if (digit > 0) {
-						button.setText(Integer.toString(digit));
-					}
-					switch(digit) {
-					case 1:
-						button.setForeground(Color.BLUE);
-						break;
-					case 2:
-						button.setForeground(Color.GREEN);
-						break;
-					case 3:
-						button.setForeground(Color.RED);
-						break;
-					case 4:
-						button.setForeground(new Color(128, 0, 255));
-						break;
-					}
-					button.setBackground(Color.WHITE);
-					button.setBorder(new LineBorder(Color.LIGHT_GRAY, 1));
-					break;
-				}
-			}
-		}
+	public void updateMineField() {
+		mineField.updateAll();
+	}
+	
+	/**
+	 * Updates the graphics of a single cell, the cells changed by one move are painted together.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 */
+	public void updateCell(int row, int col) {
+		mineField.updateCell(row, col);
+	}
+	
+	/**
+	 * Gets the row at a point of the mine field.
+	 * @param y Y coordinate relative to the mine field.
+	 * @return Row, or -1 if the point is off the board.
+	 */
+	public int getRowAt(int y) {
+		return mineField.getRowAt(y);
+	}
+	
+	/**
+	 * Gets the column at a point of the mine field.
+	 * @param x X coordinate relative to the mine field.
+	 * @return Column, or -1 if the point is off the board.
+	 */
+	public int getColAt(int x) {
+		return mineField.getColAt(x);
 	}
 	
 	/**
@@ -263,6 +267,10 @@ public class MinesweeperView {
 	 * @param numFlagsLeft Number of flags left.
 	 */
 	public void updateFlagCount(int numFlagsLeft) {
+		if (numFlagsLeft == shownFlagCount) {
+			return;  // most moves don't change it, so skip formatting the text
+		}
+		shownFlagCount = numFlagsLeft;
 		this.numFlagsLeft.setText(String.format("Flags: %d", numFlagsLeft));
 	}
 	
@@ -271,6 +279,10 @@ public class MinesweeperView {
 	 * @param timeElapsed Time elapsed in seconds.
 	 */
 	public void updateTimeElapsed(int timeElapsed) {
+		if (timeElapsed == shownTime) {
+			return;
+		}
+		shownTime = timeElapsed;
 		this.timeElapsed.setText(String.format("Time: %d", timeElapsed));
 	}
 	
@@ -287,30 +299,89 @@ public class MinesweeperView {
 	}
 	
 	/**
-	 * Adds listeners to the mine field's cells.
-	 * @param cellListener Cell button action listener.
+	 * Sets the mine layouts the player can pick from on the main menu, the first one is picked to start.
+	 * @param names Name of each layout.
 	 */
-	public void addCellListeners(MouseAdapter cellListener) {
-		for (JButton[] row : buttonArray) {
-			for (JButton cell : row) {
-				cell.addMouseListener(cellListener);
-			}
+	public void setMineLayouts(String[] names) {
+		mineLayout.removeAllItems();
+		for (String name : names) {
+			mineLayout.addItem(name);
 		}
 	}
 	
 	/**
-	 * Removes all listeners from the cells.
+	 * Gets the mine layout the player picked for the next game.
+	 * @return Index of the layout in the names given to setMineLayouts.
 	 */
-	public void removeCellListeners() {
-		// prevents buttons from being clicked after game is won or lost
-		for (JButton[] row : buttonArray) {
-			for (JButton button : row) {
-				for (ActionListener al : button.getActionListeners()) {
-					button.removeActionListener(al);
-
-				}
-			}
-		}
+	public int getMineLayout() {
+		return Math.max(mineLayout.getSelectedIndex(), 0);
+	}
+	
+	/**
+	 * Adds listeners to the mine field, only once since they stay for every game.
+	 * Find the clicked cell with getRowAt and getColAt, and the keyboard cursor with getCursorRow and getCursorCol.
+	 * @param mouseListener Mine field mouse listener.
+	 * @param keyListener Mine field key listener.
+	 */
+	public void addCellListeners(MouseAdapter mouseListener, KeyListener keyListener) {
+		mineField.addMouseListener(mouseListener);
+		mineField.addKeyListener(keyListener);
+	}
+	
+	/**
+	 * Adds a listener to the probability overlay's check box.
+	 * @param heatmapListener Check box action listener.
+	 */
+	public void addHeatmapListener(ActionListener heatmapListener) {
+		heatmap.addActionListener(heatmapListener);
+	}
+	
+	/**
+	 * Gets whether the player wants the probability overlay.
+	 * @return True if the check box is checked.
+	 */
+	public boolean isHeatmapShown() {
+		return heatmap.isSelected();
+	}
+	
+	/**
+	 * Adds a listener to the assist's check box.
+	 * @param assistListener Check box action listener.
+	 */
+	public void addAssistListener(ActionListener assistListener) {
+		assist.addActionListener(assistListener);
+	}
+	
+	/**
+	 * Gets whether the player wants obvious flags and chords made for them.
+	 * @return True if the check box is checked.
+	 */
+	public boolean isAssistEnabled() {
+		return assist.isSelected();
+	}
+	
+	/**
+	 * Shades each hidden cell by its chance of being a mine.
+	 * @param probabilities Mine probability of each cell row by row, or null to clear the overlay.
+	 */
+	public void showProbabilities(float[] probabilities) {
+		mineField.setProbabilities(probabilities);
+	}
+	
+	/**
+	 * Gets the row of the keyboard cursor.
+	 * @return Row of the cursor.
+	 */
+	public int getCursorRow() {
+		return mineField.getCursorRow();
+	}
+	
+	/**
+	 * Gets the column of the keyboard cursor.
+	 * @return Column of the cursor.
+	 */
+	public int getCursorCol() {
+		return mineField.getCursorCol();
 	}
 	
 	/*
@@ -0,0 +1,217 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Overview of the whole board with the visible part outlined. Each pixel of the summary image stands for a square
+ * block of cells, so its size stays the same however big the board is. Only blocks with changed cells are
+ * recomputed. Clicking or dragging on it scrolls the board there, and it hides itself while the whole board fits
+ * in the window.
+ * @author Jason Wu
+ *
+ */
+public final class Minimap extends JComponent {
+	private static final long serialVersionUID = 1L;
+
+	private final int SIZE = 160;  // length of the longer side in pixels
+
+	private static final Color HIDDEN_COLOR = new Color(150, 150, 150);
+	private static final Color REVEALED_COLOR = new Color(220, 220, 220);
+	private static final Color FLAG_COLOR = new Color(230, 120, 0);
+	private static final Color MINE_COLOR = Color.RED;
+	private static final Color VIEW_COLOR = Color.BLUE;
+
+	private final MinefieldPanel BOARD;
+	private final JViewport VIEWPORT;
+
+	private transient Minefield mineField;
+	private int blockSize;  // width and height of a block in cells
+	private transient BufferedImage summary;  // one pixel per block
+	private boolean[] isDirty;
+	private boolean hasDirty;
+
+	/**
+	 * Constructs a minimap of a board inside a scroll pane. The board has to be given it with setMinimap.
+	 * @param board Board to show.
+	 * @param viewport Viewport of the scroll pane the board is in.
+	 */
+	public Minimap(MinefieldPanel board, JViewport viewport) {
+		BOARD = board;
+		VIEWPORT = viewport;
+
+		VIEWPORT.addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				Dimension size = VIEWPORT.getViewSize();
+				Dimension extent = VIEWPORT.getExtentSize();
+				boolean isScrollable = size.width > extent.width || size.height > extent.height;
+				if (isScrollable != isVisible()) {
+					setVisible(isScrollable);
+				}
+				repaint();
+			}
+		});
+
+		MouseAdapter scroller = new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e) {
+				scrollTo(e.getX(), e.getY());
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				scrollTo(e.getX(), e.getY());
+			}
+		};
+		addMouseListener(scroller);
+		addMouseMotionListener(scroller);
+		setVisible(false);
+	}
+
+	/**
+	 * Sets the mine field to summarize.
+	 * @param mineField Mine field from the model.
+	 */
+	public void setMineField(Minefield mineField) {
+		this.mineField = mineField;
+		int numRows = mineField.getNumRows();
+		int numCols = mineField.getNumCols();
+		blockSize = Math.max((Math.max(numRows, numCols) + SIZE - 1) / SIZE, 1);
+
+		int width = (numCols + blockSize - 1) / blockSize;
+		int height = (numRows + blockSize - 1) / blockSize;
+		if (summary == null || summary.getWidth() != width || summary.getHeight() != height) {
+			summary = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			isDirty = new boolean[width * height];
+		}
+		updateAll();
+		revalidate();
+	}
+
+	/**
+	 * Marks the block of a changed cell to be recomputed on the next paint.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 */
+	public void updateCell(int row, int col) {
+		isDirty[(row / blockSize) * summary.getWidth() + col / blockSize] = true;
+		if (!hasDirty) {
+			hasDirty = true;
+			repaint();
+		}
+	}
+
+	/**
+	 * Marks every block to be recomputed on the next paint.
+	 */
+	public void updateAll() {
+		Arrays.fill(isDirty, true);
+		hasDirty = true;
+		repaint();
+	}
+
+	@Override
+	public Dimension getPreferredSize() {
+		if (summary == null) {
+			return new Dimension(SIZE, SIZE);
+		}
+		double scale = getScale();
+		return new Dimension((int) (summary.getWidth() * scale), (int) (summary.getHeight() * scale));
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		if (summary == null) {
+			return;
+		}
+		if (hasDirty) {
+			for (int i = 0; i < isDirty.length; i++) {
+				if (isDirty[i]) {
+					summarizeBlock(i / summary.getWidth(), i % summary.getWidth());
+					isDirty[i] = false;
+				}
+			}
+			hasDirty = false;
+		}
+
+		double scale = getScale();
+		g.drawImage(summary, 0, 0, (int) (summary.getWidth() * scale), (int) (summary.getHeight() * scale), null);
+
+		// outline of the visible part of the board
+		Rectangle view = VIEWPORT.getViewRect();
+		double pixelsPerPoint = scale / blockSize / BOARD.getCellSize();
+		g.setColor(VIEW_COLOR);
+		g.drawRect((int) (view.x * pixelsPerPoint), (int) (view.y * pixelsPerPoint),
+				Math.max((int) (view.width * pixelsPerPoint) - 1, 1), Math.max((int) (view.height * pixelsPerPoint) - 1, 1));
+	}
+
+	/*
+	 * Gets how many screen pixels a summary pixel covers.
+	 */
+	private double getScale() {
+		return (double) SIZE / Math.max(summary.getWidth(), summary.getHeight());
+	}
+
+	/*
+	 * Colors a block by its share of hidden, revealed, and flagged cells, red if a mine is showing.
+	 */
+	private void summarizeBlock(int blockRow, int blockCol) {
+		int numHidden = 0;
+		int numRevealed = 0;
+		int numFlags = 0;
+		boolean hasMine = false;
+
+		int bottom = Math.min((blockRow + 1) * blockSize, mineField.getNumRows());
+		int right = Math.min((blockCol + 1) * blockSize, mineField.getNumCols());
+		for (int i = blockRow * blockSize; i < bottom; i++) {
+			for (int j = blockCol * blockSize; j < right; j++) {
+				switch (mineField.getState(i, j)) {
+				case REVEALED:
+					numRevealed++;
+					break;
+				case FLAG:
+					numFlags++;
+					break;
+				case MINE:
+					hasMine = true;
+					break;
+				default:
+					numHidden++;
+				}
+			}
+		}
+
+		int rgb;
+		if (hasMine) {
+			rgb = MINE_COLOR.getRGB();
+		} else {
+			int total = numHidden + numRevealed + numFlags;
+			int red = (HIDDEN_COLOR.getRed() * numHidden + REVEALED_COLOR.getRed() * numRevealed + FLAG_COLOR.getRed() * numFlags) / total;
+			int green = (HIDDEN_COLOR.getGreen() * numHidden + REVEALED_COLOR.getGreen() * numRevealed + FLAG_COLOR.getGreen() * numFlags) / total;
+			int blue = (HIDDEN_COLOR.getBlue() * numHidden + REVEALED_COLOR.getBlue() * numRevealed + FLAG_COLOR.getBlue() * numFlags) / total;
+			rgb = red << 16 | green << 8 | blue;
+		}
+		summary.setRGB(blockCol, blockRow, rgb);
+	}
+
+	/*
+	 * Centers the board on the cell under a point of the minimap.
+	 */
+	private void scrollTo(int x, int y) {
+		if (summary == null) {
+			return;
+		}
+		double cellsPerPixel = blockSize / getScale();
+		BOARD.scrollToCell((int) (y * cellsPerPixel), (int) (x * cellsPerPixel));
+	}
+}
@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+/**
+ * Reusable batch of model events, stored as parallel arrays so recording an event doesn't allocate.
+ * @author Jason Wu
+ *
+ */
+public class ModelEventBatch {
+	private static final modelEvent[] EVENT_TYPES = modelEvent.values();
+	
+	private byte[] types = new byte[64];
+	private int[] rows = new int[64];
+	private int[] cols = new int[64];
+	private int size;
+	
+	/**
+	 * Gets the number of events in the batch.
+	 * @return Number of events.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Gets the type of an event.
+	 * @param index Index of the event.
+	 * @return Type of the event.
+	 */
+	public modelEvent getType(int index) {
+		return EVENT_TYPES[types[index]];
+	}
+	
+	/**
+	 * Gets the row of the cell an event happened to.
+	 * @param index Index of the event.
+	 * @return Row of the cell, -1 for game wide events.
+	 */
+	public int getRow(int index) {
+		return rows[index];
+	}
+	
+	/**
+	 * Gets the column of the cell an event happened to.
+	 * @param index Index of the event.
+	 * @return Column of the cell, -1 for game wide events.
+	 */
+	public int getCol(int index) {
+		return cols[index];
+	}
+	
+	/**
+	 * Adds an event to the end of the batch, growing the arrays if needed.
+	 * @param type Type of the event.
+	 * @param row Row of the cell, -1 for game wide events.
+	 * @param col Column of the cell, -1 for game wide events.
+	 */
+	public void add(modelEvent type, int row, int col) {
+		if (size == types.length) {
+			types = Arrays.copyOf(types, size * 2);
+			rows = Arrays.copyOf(rows, size * 2);
+			cols = Arrays.copyOf(cols, size * 2);
+		}
+		types[size] = (byte) type.ordinal();
+		rows[size] = row;
+		cols[size] = col;
+		size++;
+	}
+	
+	/**
+	 * Empties the batch while keeping its arrays for the next move.
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
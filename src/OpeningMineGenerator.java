@@ -0,0 +1,98 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Layout where the first click always opens at least a set number of cells. A random blob of cells grows out from
+ * the first click, and the blob and its neighbors are kept free of mines, so every cell of the blob is a 0 and the
+ * flood reveal opens all of it plus its border. The rest of the board is uniform. On a board too crowded for the
+ * full opening the blob stops growing where the mines would run out of room, so the opening is smaller.
+ * @author Jason Wu
+ *
+ */
+public class OpeningMineGenerator extends WeightedMineGenerator {
+	private final int MIN_OPENING;
+
+	/**
+	 * Constructs a generator whose first click opens at least 30 cells.
+	 */
+	public OpeningMineGenerator() {
+		this(30);
+	}
+
+	/**
+	 * Constructs a generator with a custom opening size.
+	 * @param minOpening Fewest cells the first click opens, capped so the rest of the board has room for the mines.
+	 */
+	public OpeningMineGenerator(int minOpening) {
+		MIN_OPENING = minOpening;
+	}
+
+	@Override
+	public String getName() {
+		return "opening " + MIN_OPENING;
+	}
+
+	@Override
+	protected float[] getWeights(int numRows, int numCols, int numMines, int startingRow, int startingCol,
+			Random random) {
+		int numCells = numRows * numCols;
+		float[] weights = new float[numCells];
+		Arrays.fill(weights, 1);
+		boolean[] isBlob = new boolean[numCells];
+		int[] frontier = new int[numCells];  // cells next to the blob that could join it
+		boolean[] isFrontier = new boolean[numCells];
+		int frontierSize = 0;
+
+		// a cell joins the blob at random from the frontier, making the opening an irregular shape
+		int cell = startingRow * numCols + startingCol;
+		weights[cell] = 0;
+		int numOpened = 1;
+		int maxOpened = numCells - numMines;  // the mines need the rest of the board
+		isFrontier[cell] = true;
+		frontier[frontierSize++] = cell;
+		while (numOpened < MIN_OPENING && frontierSize > 0) {
+			int pick = random.nextInt(frontierSize);
+			cell = frontier[pick];
+			frontier[pick] = frontier[--frontierSize];
+
+			// a cell whose neighbors would leave too little room for the mines stays out of the blob
+			int row = cell / numCols;
+			int col = cell % numCols;
+			if (numOpened + countUnopened(weights, numRows, numCols, row, col) > maxOpened) {
+				continue;
+			}
+			isBlob[cell] = true;
+
+			// the cell and its neighbors are opened, and the neighbors can join the blob later
+			for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, numRows - 1); i++) {
+				for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, numCols - 1); j++) {
+					int neighbor = i * numCols + j;
+					if (weights[neighbor] != 0) {
+						weights[neighbor] = 0;
+						numOpened++;
+					}
+					if (!isBlob[neighbor] && !isFrontier[neighbor]) {
+						isFrontier[neighbor] = true;
+						frontier[frontierSize++] = neighbor;
+					}
+				}
+			}
+		}
+		return weights;
+	}
+
+	/*
+	 * Counts the cells around a cell, and the cell itself, that aren't opened yet.
+	 */
+	private static int countUnopened(float[] weights, int numRows, int numCols, int row, int col) {
+		int count = 0;
+		for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, numRows - 1); i++) {
+			for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, numCols - 1); j++) {
+				if (weights[i * numCols + j] != 0) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+}
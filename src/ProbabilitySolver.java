@@ -0,0 +1,542 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Exact mine probability of every hidden cell, from the visible numbers and the number of mines left.
+ * Hidden cells beside numbers (the frontier) are split into independent components, each component's mine
+ * layouts are counted exactly, and the components are combined with the rest of the hidden cells under
+ * the total mine count. Component results are cached, so after a move only the parts of the frontier it changed
+ * are counted again. Not thread-safe: use one solver per thread. Checks for interruption so a newer move can
+ * cancel it.
+ * @author Jason Wu
+ *
+ */
+public class ProbabilitySolver {
+	private HashMap<String, Component> cache = new HashMap<String, Component>();
+
+	/**
+	 * Computes the mine probability of every hidden cell, flags are trusted to be mines.
+	 * @param codes Visible board from Minefield.getCodes.
+	 * @param numRows Number of rows.
+	 * @param numCols Number of columns.
+	 * @param numMinesLeft Mines not flagged yet, the model's number of flags left.
+	 * @return Probability of each cell, NaN for cells that aren't hidden or if the board has no solution.
+	 * @throws InterruptedException If the thread was interrupted, checked while counting.
+	 */
+	public float[] solve(byte[] codes, int numRows, int numCols, int numMinesLeft) throws InterruptedException {
+		int numCells = numRows * numCols;
+		float[] probabilities = new float[numCells];
+		Arrays.fill(probabilities, Float.NaN);
+
+		// frontier cells, numbered in the order they're found, grouped into components by the numbers they share
+		int[] frontierIndex = new int[numCells];
+		Arrays.fill(frontierIndex, -1);
+		int[] parent = new int[numCells];
+		int numFrontier = 0;
+		int numHidden = 0;
+		for (int i = 0; i < numCells; i++) {
+			if (codes[i] == Minefield.HIDDEN_CODE) {
+				numHidden++;
+			}
+			if (codes[i] > 8) {
+				continue;
+			}
+			int first = -1;
+			for (int neighbor : getNeighbors(i, numRows, numCols)) {
+				if (codes[neighbor] != Minefield.HIDDEN_CODE) {
+					continue;
+				}
+				if (frontierIndex[neighbor] < 0) {
+					frontierIndex[neighbor] = numFrontier;
+					parent[numFrontier] = numFrontier;
+					numFrontier++;
+				}
+				if (first < 0) {
+					first = frontierIndex[neighbor];
+				} else {
+					parent[find(parent, frontierIndex[neighbor])] = find(parent, first);
+				}
+			}
+		}
+
+		// group the numbers by component
+		HashMap<Integer, ArrayList<Integer>> numbersByRoot = new HashMap<Integer, ArrayList<Integer>>();
+		for (int i = 0; i < numCells; i++) {
+			if (codes[i] > 8) {
+				continue;
+			}
+			for (int neighbor : getNeighbors(i, numRows, numCols)) {
+				if (codes[neighbor] == Minefield.HIDDEN_CODE) {
+					Integer root = find(parent, frontierIndex[neighbor]);
+					ArrayList<Integer> numbers = numbersByRoot.get(root);
+					if (numbers == null) {
+						numbers = new ArrayList<Integer>();
+						numbersByRoot.put(root, numbers);
+					}
+					numbers.add(i);
+					break;
+				}
+			}
+		}
+
+		// count each component, reusing components that haven't changed since the last solve
+		HashMap<String, Component> used = new HashMap<String, Component>();
+		ArrayList<Component> components = new ArrayList<Component>();
+		ArrayList<int[]> componentCells = new ArrayList<int[]>();
+		for (ArrayList<Integer> numbers : numbersByRoot.values()) {
+			Constraints constraints = new Constraints(codes, numRows, numCols, numbers);
+			Component component = cache.get(constraints.key);
+			if (component == null) {
+				component = constraints.count();
+			}
+			used.put(constraints.key, component);
+			if (component.maxMines < 0) {
+				return probabilities;  // the numbers contradict each other or the flags
+			}
+			components.add(component);
+			componentCells.add(constraints.cells);
+		}
+		cache = used;
+
+		// everything else hidden shares the mines the frontier doesn't take
+		int numOther = numHidden - numFrontier;
+		double[] otherWeights = getBinomials(numOther, numMinesLeft);
+
+		int numComponents = components.size();
+		double[][] prefix = new double[numComponents + 1][];
+		double[][] suffix = new double[numComponents + 1][];
+		prefix[0] = new double[] {1};
+		suffix[numComponents] = new double[] {1};
+		for (int i = 0; i < numComponents; i++) {
+			prefix[i + 1] = convolve(prefix[i], components.get(i).layouts);
+		}
+		for (int i = numComponents - 1; i >= 0; i--) {
+			suffix[i] = convolve(components.get(i).layouts, suffix[i + 1]);
+		}
+
+		double total = 0;
+		double otherMines = 0;
+		double[] all = prefix[numComponents];
+		for (int k = 0; k < all.length; k++) {
+			int left = numMinesLeft - k;
+			if (left >= 0 && left <= numOther) {
+				total += all[k] * otherWeights[left];
+				otherMines += all[k] * otherWeights[left] * left;
+			}
+		}
+		if (total == 0) {
+			return probabilities;  // not enough or too many mines left for the numbers
+		}
+
+		for (int i = 0; i < numComponents; i++) {
+			Component component = components.get(i);
+			double[] rest = convolve(prefix[i], suffix[i + 1]);
+			// weight of the component having k mines, given every way to place the rest
+			double[] weights = new double[component.layouts.length];
+			for (int k = 0; k < weights.length; k++) {
+				for (int r = 0; r < rest.length; r++) {
+					int left = numMinesLeft - k - r;
+					if (left >= 0 && left <= numOther) {
+						weights[k] += rest[r] * otherWeights[left];
+					}
+				}
+			}
+			int[] cells = componentCells.get(i);
+			for (int c = 0; c < cells.length; c++) {
+				double mines = 0;
+				for (int k = 0; k < weights.length; k++) {
+					mines += component.mines[c][k] * weights[k];
+				}
+				probabilities[cells[c]] = (float) (mines / total);
+			}
+		}
+
+		if (numOther > 0) {
+			float other = (float) (otherMines / total / numOther);
+			for (int i = 0; i < numCells; i++) {
+				if (codes[i] == Minefield.HIDDEN_CODE && frontierIndex[i] < 0) {
+					probabilities[i] = other;
+				}
+			}
+		}
+		return probabilities;
+	}
+
+	/*
+	 * Gets the neighbors of a cell.
+	 */
+	private static int[] getNeighbors(int cell, int numRows, int numCols) {
+		int row = cell / numCols;
+		int col = cell % numCols;
+		int[] neighbors = new int[8];
+		int count = 0;
+		for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, numRows - 1); i++) {
+			for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, numCols - 1); j++) {
+				if (i != row || j != col) {
+					neighbors[count++] = i * numCols + j;
+				}
+			}
+		}
+		return Arrays.copyOf(neighbors, count);
+	}
+
+	/*
+	 * Finds the root of a frontier cell's component.
+	 */
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/*
+	 * Multiplies two mine count distributions, result[k] sums a[i] * b[k - i].
+	 */
+	private static double[] convolve(double[] a, double[] b) {
+		double[] result = new double[a.length + b.length - 1];
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < b.length; j++) {
+				result[i + j] += a[i] * b[j];
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Gets n choose k for every k up to max, all scaled by the same factor so they fit in a double.
+	 */
+	private static double[] getBinomials(int n, int max) {
+		double[] logs = new double[Math.max(max, 0) + 1];
+		double largest = Double.NEGATIVE_INFINITY;
+		double log = 0;
+		for (int k = 0; k < logs.length; k++) {
+			if (k > n) {
+				logs[k] = Double.NEGATIVE_INFINITY;
+				continue;
+			}
+			if (k > 0) {
+				log += Math.log(n - k + 1) - Math.log(k);
+			}
+			logs[k] = log;
+			largest = Math.max(largest, log);
+		}
+		double[] binomials = new double[logs.length];
+		for (int k = 0; k < logs.length; k++) {
+			binomials[k] = Math.exp(logs[k] - largest);
+		}
+		return binomials;
+	}
+
+	/*
+	 * Mine layouts of one component: layouts[k] counts the layouts with k mines and mines[c][k] counts those
+	 * with a mine on cell c, all scaled so the largest count is 1. maxMines is -1 if there's no layout.
+	 */
+	private static class Component {
+		private final double[] layouts;
+		private final double[][] mines;
+		private final int maxMines;
+
+		private Component(double[] layouts, double[][] mines, int maxMines) {
+			this.layouts = layouts;
+			this.mines = mines;
+			this.maxMines = maxMines;
+		}
+	}
+
+	/*
+	 * Numbers of one component as constraints on its hidden cells. Layouts are counted with a dynamic program
+	 * over the cells in an order that follows the frontier: the state between two cells is how many mines each
+	 * open constraint (one with cells on both sides) has so far, so the work grows with the width of the frontier
+	 * instead of exponentially with its length.
+	 */
+	private static class Constraints {
+		private final int[] cells;  // board index of each cell, in the order they're counted
+		private final int[][] cellsOf;  // cells of each constraint, as indexes into cells
+		private final int[] targets;  // mines each constraint needs besides flags
+		private final String key;
+
+		private int[][] constraintsOf;  // constraints on each cell
+		private int[] first;  // first and last cell of each constraint
+		private int[] last;
+		private int[][] open;  // open constraints before each cell
+		private int[] counts;  // scratch mine count per constraint
+		private char[] nextKey;
+
+		private Constraints(byte[] codes, int numRows, int numCols, ArrayList<Integer> numbers) {
+			HashMap<Integer, Integer> localIndex = new HashMap<Integer, Integer>();
+			ArrayList<Integer> found = new ArrayList<Integer>();
+			ArrayList<int[]> constraintCells = new ArrayList<int[]>();
+			ArrayList<Integer> constraintTargets = new ArrayList<Integer>();
+			StringBuilder key = new StringBuilder();
+
+			numbers.sort(null);
+			for (int number : numbers) {
+				int[] neighbors = getNeighbors(number, numRows, numCols);
+				int[] local = new int[neighbors.length];
+				int count = 0;
+				int target = codes[number];
+				key.append(number);
+				for (int neighbor : neighbors) {
+					if (codes[neighbor] == Minefield.FLAG_CODE || codes[neighbor] == Minefield.MINE_CODE) {
+						target--;
+					} else if (codes[neighbor] == Minefield.HIDDEN_CODE) {
+						Integer index = localIndex.get(neighbor);
+						if (index == null) {
+							index = found.size();
+							localIndex.put(neighbor, index);
+							found.add(neighbor);
+						}
+						local[count++] = index;
+						key.append(',').append(neighbor);
+					}
+				}
+				constraintCells.add(Arrays.copyOf(local, count));
+				constraintTargets.add(target);
+				key.append(':').append(target).append(';');
+			}
+			this.key = key.toString();
+
+			targets = new int[constraintTargets.size()];
+			for (int i = 0; i < targets.length; i++) {
+				targets[i] = constraintTargets.get(i);
+			}
+			int[][] foundCellsOf = constraintCells.toArray(new int[0][]);
+			int[][] foundConstraintsOf = getConstraintsOf(foundCellsOf, found.size());
+
+			// breadth first from the cell farthest from an arbitrary one, which walks along the frontier
+			int[] order = getBreadthFirstOrder(foundCellsOf, foundConstraintsOf, 0);
+			order = getBreadthFirstOrder(foundCellsOf, foundConstraintsOf, order[order.length - 1]);
+			int[] position = new int[order.length];
+			cells = new int[order.length];
+			for (int i = 0; i < order.length; i++) {
+				position[order[i]] = i;
+				cells[i] = found.get(order[i]);
+			}
+			cellsOf = new int[foundCellsOf.length][];
+			for (int c = 0; c < cellsOf.length; c++) {
+				cellsOf[c] = new int[foundCellsOf[c].length];
+				for (int j = 0; j < cellsOf[c].length; j++) {
+					cellsOf[c][j] = position[foundCellsOf[c][j]];
+				}
+			}
+		}
+
+		/*
+		 * Counts every mine layout of the component, forward to get the layouts ending at each state and
+		 * backward to get the ways each state can be finished.
+		 */
+		private Component count() throws InterruptedException {
+			int numCells = cells.length;
+			int numConstraints = cellsOf.length;
+			for (int c = 0; c < numConstraints; c++) {
+				if (targets[c] < 0 || targets[c] > cellsOf[c].length) {
+					return new Component(null, null, -1);
+				}
+			}
+
+			constraintsOf = getConstraintsOf(cellsOf, numCells);
+			first = new int[numConstraints];
+			last = new int[numConstraints];
+			Arrays.fill(first, numCells);
+			for (int c = 0; c < numConstraints; c++) {
+				for (int cell : cellsOf[c]) {
+					first[c] = Math.min(first[c], cell);
+					last[c] = Math.max(last[c], cell);
+				}
+			}
+			open = new int[numCells + 1][];
+			for (int i = 0; i <= numCells; i++) {
+				int numOpen = 0;
+				int[] ids = new int[numConstraints];
+				for (int c = 0; c < numConstraints; c++) {
+					if (first[c] < i && last[c] >= i) {
+						ids[numOpen++] = c;
+					}
+				}
+				open[i] = Arrays.copyOf(ids, numOpen);
+			}
+			counts = new int[numConstraints];
+			nextKey = new char[numConstraints];
+
+			ArrayList<HashMap<String, double[]>> forward = new ArrayList<HashMap<String, double[]>>();
+			HashMap<String, double[]> start = new HashMap<String, double[]>();
+			start.put("", new double[] {1});
+			forward.add(start);
+			for (int i = 0; i < numCells; i++) {
+				checkInterrupted();
+				HashMap<String, double[]> next = new HashMap<String, double[]>();
+				for (String state : forward.get(i).keySet()) {
+					double[] ways = forward.get(i).get(state);
+					for (int value = 0; value <= 1; value++) {
+						String nextState = getNextState(i, state, value);
+						if (nextState == null) {
+							continue;
+						}
+						double[] nextWays = next.get(nextState);
+						if (nextWays == null) {
+							nextWays = new double[i + 2];
+							next.put(nextState, nextWays);
+						}
+						for (int k = 0; k < ways.length; k++) {
+							nextWays[k + value] += ways[k];
+						}
+					}
+				}
+				forward.add(next);
+			}
+			double[] layouts = forward.get(numCells).get("");
+			if (layouts == null) {
+				return new Component(null, null, -1);
+			}
+
+			HashMap<String, double[]> after = new HashMap<String, double[]>();
+			after.put("", new double[] {1});
+			double[][] mines = new double[numCells][numCells + 1];
+			for (int i = numCells - 1; i >= 0; i--) {
+				checkInterrupted();
+				HashMap<String, double[]> before = new HashMap<String, double[]>();
+				for (String state : forward.get(i).keySet()) {
+					double[] ways = forward.get(i).get(state);
+					double[] finishes = new double[numCells - i + 1];
+					for (int value = 0; value <= 1; value++) {
+						String nextState = getNextState(i, state, value);
+						double[] nextFinishes = nextState == null ? null : after.get(nextState);
+						if (nextFinishes == null) {
+							continue;
+						}
+						for (int k = 0; k < nextFinishes.length; k++) {
+							finishes[k + value] += nextFinishes[k];
+						}
+						// layouts through this state with a mine on cell i
+						if (value == 1) {
+							for (int a = 0; a < ways.length; a++) {
+								if (ways[a] != 0) {
+									for (int b = 0; b < nextFinishes.length; b++) {
+										mines[i][a + b + 1] += ways[a] * nextFinishes[b];
+									}
+								}
+							}
+						}
+					}
+					before.put(state, finishes);
+				}
+				after = before;
+			}
+
+			int maxMines = -1;
+			double largest = 0;
+			for (int k = 0; k < layouts.length; k++) {
+				if (layouts[k] > 0) {
+					maxMines = k;
+					largest = Math.max(largest, layouts[k]);
+				}
+			}
+			double[] scaledLayouts = new double[maxMines + 1];
+			double[][] scaledMines = new double[numCells][maxMines + 1];
+			for (int k = 0; k <= maxMines; k++) {
+				scaledLayouts[k] = layouts[k] / largest;
+				for (int c = 0; c < numCells; c++) {
+					scaledMines[c][k] = mines[c][k] / largest;
+				}
+			}
+			return new Component(scaledLayouts, scaledMines, maxMines);
+		}
+
+		/*
+		 * Gets the state after deciding a cell, or null if that breaks a constraint. A state holds the mine count
+		 * of each open constraint as one char.
+		 */
+		private String getNextState(int cell, String state, int value) {
+			int[] before = open[cell];
+			for (int p = 0; p < before.length; p++) {
+				counts[before[p]] = state.charAt(p);
+			}
+			for (int c : constraintsOf[cell]) {
+				if (first[c] == cell) {
+					counts[c] = 0;
+				}
+				counts[c] += value;
+				if (counts[c] > targets[c] || counts[c] + getNumCellsAfter(c, cell) < targets[c]) {
+					return null;
+				}
+			}
+			int[] after = open[cell + 1];
+			for (int p = 0; p < after.length; p++) {
+				nextKey[p] = (char) counts[after[p]];
+			}
+			return new String(nextKey, 0, after.length);
+		}
+
+		/*
+		 * Gets the number of a constraint's cells that come after a cell.
+		 */
+		private int getNumCellsAfter(int constraint, int cell) {
+			int count = 0;
+			for (int other : cellsOf[constraint]) {
+				if (other > cell) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		/*
+		 * Lists the constraints on each cell.
+		 */
+		private static int[][] getConstraintsOf(int[][] cellsOf, int numCells) {
+			int[] numConstraints = new int[numCells];
+			for (int[] constraint : cellsOf) {
+				for (int cell : constraint) {
+					numConstraints[cell]++;
+				}
+			}
+			int[][] constraintsOf = new int[numCells][];
+			for (int i = 0; i < numCells; i++) {
+				constraintsOf[i] = new int[numConstraints[i]];
+				numConstraints[i] = 0;
+			}
+			for (int c = 0; c < cellsOf.length; c++) {
+				for (int cell : cellsOf[c]) {
+					constraintsOf[cell][numConstraints[cell]++] = c;
+				}
+			}
+			return constraintsOf;
+		}
+
+		/*
+		 * Orders the cells breadth first from a cell, two cells are adjacent if a constraint has both.
+		 */
+		private static int[] getBreadthFirstOrder(int[][] cellsOf, int[][] constraintsOf, int start) {
+			int[] order = new int[constraintsOf.length];
+			boolean[] isVisited = new boolean[constraintsOf.length];
+			int head = 0;
+			int tail = 0;
+			order[tail++] = start;
+			isVisited[start] = true;
+			while (head < tail) {
+				int cell = order[head++];
+				for (int c : constraintsOf[cell]) {
+					for (int other : cellsOf[c]) {
+						if (!isVisited[other]) {
+							isVisited[other] = true;
+							order[tail++] = other;
+						}
+					}
+				}
+			}
+			return order;
+		}
+
+		/*
+		 * Lets a newer move cancel the count.
+		 */
+		private static void checkInterrupted() throws InterruptedException {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the parallel flood reveal against the sequential one on a large, sparse board, for 1 to N threads.
+ * Also checks that every run reveals exactly the same cells as the sequential reveal.
+ * Usage: java RevealBenchmark [rows] [cols] [mines] [tile size]
+ * @author Jason Wu
+ *
+ */
+public class RevealBenchmark {
+
+	/**
+	 * Runs the benchmark and prints the time and speedup for each thread count.
+	 * @param args Optional rows, columns, mines, and tile size.
+	 */
+	public static void main(String[] args) {
+		int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+		int numCols = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+		int numMines = args.length > 2 ? Integer.parseInt(args[2]) : numRows * numCols / 100;
+		int tileSize = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+
+		byte[] expected = null;
+		double sequentialTime = 0;
+
+		for (int threads = 0; threads <= Runtime.getRuntime().availableProcessors(); threads++) {
+			ForkJoinPool pool = threads == 0 ? null : new ForkJoinPool(threads);
+			double best = Double.MAX_VALUE;
+
+			for (int run = 0; run < 3; run++) {
+				MinesweeperModel model = new MinesweeperModel();
+				model.setMineField(new Minefield(numRows, numCols, numMines));
+				model.setSeed(1);
+				model.setParallelReveal(pool, tileSize);
+				model.generateMineField(numRows / 2, numCols / 2);
+				model.generateNumField();
+
+				long start = System.nanoTime();
+				model.reveal(numRows / 2, numCols / 2);
+				best = Math.min(best, (System.nanoTime() - start) / 1e6);
+
+				byte[] packed = model.getMineField().pack();
+				if (expected == null) {
+					expected = packed;
+				} else if (!Arrays.equals(expected, packed)) {
+					throw new IllegalStateException("Parallel reveal with " + threads + " threads differs from sequential");
+				}
+			}
+
+			if (threads == 0) {
+				sequentialTime = best;
+				System.out.printf("sequential: %.1f ms%n", best);
+			} else {
+				System.out.printf("%d threads: %.1f ms, %.2fx%n", threads, best, sequentialTime / best);
+				pool.shutdown();
+			}
+		}
+	}
+}
@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel flood reveal for very large openings. The board is split into square tiles, each tile floods its own
+ * cells on a fork-join pool, and cells reached across a tile edge are handed to the neighboring tile in the next
+ * round. Reveals exactly the same cells as the model's sequential flood reveal, since both reveal the closure of
+ * the same rule: every neighbor of a revealed empty cell, and every empty cell beside a revealed number.
+ * @author Jason Wu
+ *
+ */
+public class ShardedReveal {
+	private final Minefield MINE_FIELD;
+	private final ForkJoinPool POOL;
+	private final int TILE_SIZE;
+	private final int NUM_ROWS;
+	private final int NUM_COLS;
+	private final int TILES_PER_ROW;
+	private final int NUM_TILES;
+
+	/**
+	 * Constructs a parallel flood reveal over a mine field.
+	 * @param mineField Mine field to reveal on, its number field must be generated.
+	 * @param pool Pool the tiles run on.
+	 * @param tileSize Width and height of a tile in cells.
+	 */
+	public ShardedReveal(Minefield mineField, ForkJoinPool pool, int tileSize) {
+		MINE_FIELD = mineField;
+		POOL = pool;
+		TILE_SIZE = Math.max(tileSize, 1);
+		NUM_ROWS = mineField.getNumRows();
+		NUM_COLS = mineField.getNumCols();
+		TILES_PER_ROW = (NUM_COLS + TILE_SIZE - 1) / TILE_SIZE;
+		NUM_TILES = TILES_PER_ROW * ((NUM_ROWS + TILE_SIZE - 1) / TILE_SIZE);
+	}
+
+	/**
+	 * Flood reveals from an empty cell, same result as the model's sequential flood reveal.
+	 * Flags inside the opening are revealed too, like the sequential version.
+	 * @param row Row of the empty cell.
+	 * @param col Column of the empty cell.
+	 * @return Cells that were revealed.
+	 */
+	public Result reveal(int row, int col) {
+		TileTask[] tiles = new TileTask[NUM_TILES];
+		Result result = new Result();
+
+		ArrayList<TileTask> active = new ArrayList<TileTask>();
+		getTile(tiles, row * NUM_COLS + col).inbox.add(row * NUM_COLS + col);
+
+		// each round floods every tile that has incoming cells, until nothing crosses a tile edge
+		while (true) {
+			active.clear();
+			for (TileTask tile : tiles) {
+				if (tile != null && tile.inbox.size > 0) {
+					tile.reinitialize();
+					active.add(tile);
+				}
+			}
+			if (active.isEmpty()) {
+				break;
+			}
+
+			POOL.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					invokeAll(active);
+				}
+			});
+
+			for (TileTask tile : active) {
+				tile.inbox.size = 0;
+			}
+			for (TileTask tile : active) {
+				for (int i = 0; i < tile.outbox.size; i++) {
+					int cell = tile.outbox.values[i];
+					getTile(tiles, cell).inbox.add(cell);
+				}
+				tile.outbox.size = 0;
+				result.revealed.addAll(tile.revealed);
+				tile.revealed.size = 0;
+				result.numHiddenRevealed += tile.numHiddenRevealed;
+				tile.numHiddenRevealed = 0;
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Gets the tile a cell belongs to, creating it the first time the flood reaches it.
+	 */
+	private TileTask getTile(TileTask[] tiles, int cell) {
+		int index = (cell / NUM_COLS / TILE_SIZE) * TILES_PER_ROW + (cell % NUM_COLS) / TILE_SIZE;
+		if (tiles[index] == null) {
+			tiles[index] = new TileTask(index);
+		}
+		return tiles[index];
+	}
+
+	/**
+	 * Cells revealed by a parallel flood reveal.
+	 *
+	 */
+	public static class Result {
+		private final IntList revealed = new IntList();
+		private int numHiddenRevealed;
+
+		/**
+		 * Gets the number of cells revealed.
+		 * @return Number of cells.
+		 */
+		public int getNumRevealed() {
+			return revealed.size;
+		}
+
+		/**
+		 * Gets a revealed cell.
+		 * @param index Index between 0 and getNumRevealed() - 1, the order isn't meaningful.
+		 * @return Cell as row * columns + column.
+		 */
+		public int getRevealed(int index) {
+			return revealed.values[index];
+		}
+
+		/**
+		 * Gets the number of revealed cells that were hidden, the rest were flagged.
+		 * @return Number of cells that were hidden.
+		 */
+		public int getNumHiddenRevealed() {
+			return numHiddenRevealed;
+		}
+	}
+
+	/*
+	 * Floods one tile. Only the thread running a tile ever changes its cells' states, and the mines and digits
+	 * of other tiles never change, so tiles don't need to lock anything.
+	 */
+	@SuppressWarnings("serial")  // RecursiveAction is Serializable, but tasks are never serialized
+	private class TileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int TOP;
+		private final int LEFT;
+		private final int BOTTOM;  // exclusive
+		private final int RIGHT;  // exclusive
+
+		private final IntList inbox = new IntList();  // cells reached from other tiles (or the start)
+		private final IntList outbox = new IntList();  // cells reached in other tiles
+		private final IntList revealed = new IntList();
+		private final IntList stack = new IntList();
+		private int numHiddenRevealed;
+
+		private TileTask(int index) {
+			TOP = index / TILES_PER_ROW * TILE_SIZE;
+			LEFT = index % TILES_PER_ROW * TILE_SIZE;
+			BOTTOM = Math.min(TOP + TILE_SIZE, NUM_ROWS);
+			RIGHT = Math.min(LEFT + TILE_SIZE, NUM_COLS);
+		}
+
+		@Override
+		protected void compute() {
+			for (int i = 0; i < inbox.size; i++) {
+				tryReveal(inbox.values[i]);
+			}
+
+			while (stack.size > 0) {
+				int cell = stack.values[--stack.size];
+				int row = cell / NUM_COLS;
+				int col = cell % NUM_COLS;
+				boolean isEmpty = MINE_FIELD.getNumNeighboringMines(row, col) == 0;
+
+				for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, NUM_ROWS - 1); i++) {
+					for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, NUM_COLS - 1); j++) {
+						// empty cells spread to all 8 neighbors, numbers only to empty cells beside them
+						if ((i == row) == (j == col)) {
+							if (!isEmpty || (i == row && j == col)) {
+								continue;
+							}
+						} else if (!isEmpty && MINE_FIELD.getNumNeighboringMines(i, j) != 0) {
+							continue;
+						}
+
+						if (i >= TOP && i < BOTTOM && j >= LEFT && j < RIGHT) {
+							tryReveal(i * NUM_COLS + j);
+						} else {
+							outbox.add(i * NUM_COLS + j);
+						}
+					}
+				}
+			}
+		}
+
+		/*
+		 * Reveals a cell of this tile if it isn't already revealed, and queues it to spread further.
+		 */
+		private void tryReveal(int cell) {
+			int row = cell / NUM_COLS;
+			int col = cell % NUM_COLS;
+			buttonState state = MINE_FIELD.getState(row, col);
+			if (state == buttonState.REVEALED || MINE_FIELD.getIsMine(row, col)) {
+				return;
+			}
+			if (state == buttonState.HIDDEN) {
+				numHiddenRevealed++;
+			}
+			MINE_FIELD.setState(row, col, buttonState.REVEALED);
+			revealed.add(cell);
+			stack.add(cell);
+		}
+	}
+
+	/*
+	 * Growable array of ints.
+	 */
+	private static class IntList {
+		private int[] values = new int[16];
+		private int size;
+
+		private void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		private void addAll(IntList other) {
+			if (size + other.size > values.length) {
+				values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+			}
+			System.arraycopy(other.values, 0, values, size, other.size);
+			size += other.size;
+		}
+	}
+}
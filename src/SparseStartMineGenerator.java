@@ -0,0 +1,48 @@
+import java.util.Random;
+
+/**
+ * Layout that thins out the mines near the first click, so the start is gentler without changing the
+ * mine count. The chance of a mine grows with distance from the first click until it's back to normal.
+ * @author Jason Wu
+ *
+ */
+public class SparseStartMineGenerator extends WeightedMineGenerator {
+	private final double RADIUS;
+	private final double NEAR_DENSITY;
+
+	/**
+	 * Constructs a generator where mines right next to the safe area are a fifth as likely, back to normal 8 cells away.
+	 */
+	public SparseStartMineGenerator() {
+		this(8, 0.2);
+	}
+
+	/**
+	 * Constructs a generator with a custom sparse area.
+	 * @param radius Distance from the first click in cells where the density is back to normal.
+	 * @param nearDensity How likely a mine is next to the first click compared to far away, between 0 and 1.
+	 */
+	public SparseStartMineGenerator(double radius, double nearDensity) {
+		RADIUS = Math.max(radius, 1);
+		NEAR_DENSITY = nearDensity;
+	}
+
+	@Override
+	public String getName() {
+		return "sparse start";
+	}
+
+	@Override
+	protected float[] getWeights(int numRows, int numCols, int numMines, int startingRow, int startingCol,
+			Random random) {
+		float[] weights = new float[numRows * numCols];
+		for (int i = 0; i < numRows; i++) {
+			for (int j = 0; j < numCols; j++) {
+				double distance = Math.hypot(i - startingRow, j - startingCol);
+				weights[i * numCols + j] = (float) (NEAR_DENSITY + (1 - NEAR_DENSITY) * Math.min(distance / RADIUS, 1));
+			}
+		}
+		clearStartingArea(weights, numRows, numCols, startingRow, startingCol);
+		return weights;
+	}
+}
@@ -0,0 +1,242 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * Local statistics store for finished games. Every game is appended to a file as a fixed size record and
+ * indexed in memory per difficulty, so best times, win rates, and percentiles don't need to rescan the file.
+ * @author Jason Wu
+ *
+ */
+public class StatisticsStore {
+	private static final difficulty[] DIFFICULTIES = difficulty.values();
+	private static final int RECORD_SIZE = 30;  // bytes written by record
+
+	private final File FILE;
+	private final Index[] INDEXES;
+
+	/**
+	 * Constructs the store and loads every game already recorded in the file.
+	 * @param file File to append games to, created on the first game if it doesn't exist.
+	 */
+	public StatisticsStore(File file) {
+		FILE = file;
+		INDEXES = new Index[DIFFICULTIES.length];
+		for (int i = 0; i < INDEXES.length; i++) {
+			INDEXES[i] = new Index();
+		}
+		load();
+	}
+
+	/**
+	 * Records a finished game, appending it to the file and adding it to the index.
+	 * @param difficulty Difficulty of the game.
+	 * @param seed Seed the mine field was generated from.
+	 * @param timeMillis Time from the first click to the end of the game in milliseconds.
+	 * @param numClicks Number of clicks made.
+	 * @param bbbv 3BV of the board (minimum clicks needed to win).
+	 * @param hasWon True if the game was won.
+	 */
+	public void record(difficulty difficulty, long seed, int timeMillis, int numClicks, int bbbv, boolean hasWon) {
+		INDEXES[difficulty.ordinal()].add(timeMillis, hasWon);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FILE, true)))) {
+			out.writeByte(difficulty.ordinal());
+			out.writeBoolean(hasWon);
+			out.writeLong(seed);
+			out.writeInt(timeMillis);
+			out.writeInt(numClicks);
+			out.writeInt(bbbv);
+			out.writeLong(System.currentTimeMillis());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Gets the number of games played on a difficulty.
+	 * @param difficulty Difficulty to check.
+	 * @return Number of games, won or lost.
+	 */
+	public int getNumGames(difficulty difficulty) {
+		return INDEXES[difficulty.ordinal()].numGames;
+	}
+
+	/**
+	 * Gets the number of games won on a difficulty.
+	 * @param difficulty Difficulty to check.
+	 * @return Number of games won.
+	 */
+	public int getNumWins(difficulty difficulty) {
+		return INDEXES[difficulty.ordinal()].numWins;
+	}
+
+	/**
+	 * Gets the fastest winning times on a difficulty.
+	 * @param difficulty Difficulty to check.
+	 * @param n Maximum number of times to get.
+	 * @return Up to n times in milliseconds, fastest first.
+	 */
+	public int[] getTopTimes(difficulty difficulty, int n) {
+		Index index = INDEXES[difficulty.ordinal()];
+		return Arrays.copyOf(index.winTimes, Math.min(n, index.numWins));
+	}
+
+	/**
+	 * Gets the win rate over the most recent games on a difficulty.
+	 * @param difficulty Difficulty to check.
+	 * @param numGames Number of recent games to include, 0 or less for all games.
+	 * @return Fraction of those games that were won, 0 if no games were played.
+	 */
+	public double getWinRate(difficulty difficulty, int numGames) {
+		Index index = INDEXES[difficulty.ordinal()];
+		if (numGames <= 0 || numGames > index.numGames) {
+			numGames = index.numGames;
+		}
+		if (numGames == 0) {
+			return 0;
+		}
+		int start = index.numGames - numGames;
+		return (double) (index.winsBefore[index.numGames] - index.winsBefore[start]) / numGames;
+	}
+
+	/**
+	 * Gets the percentile of a winning time, compared to every other win on the difficulty.
+	 * @param difficulty Difficulty to check.
+	 * @param timeMillis Time in milliseconds.
+	 * @return Fraction of recorded wins that were slower than the time.
+	 */
+	public double getPercentile(difficulty difficulty, int timeMillis) {
+		Index index = INDEXES[difficulty.ordinal()];
+		if (index.numWins == 0) {
+			return 1;
+		}
+		return (double) (index.numWins - upperBound(index.winTimes, index.numWins, timeMillis)) / index.numWins;
+	}
+
+	/**
+	 * Gets the winning time at a percentile on a difficulty.
+	 * @param difficulty Difficulty to check.
+	 * @param percentile Percentile between 0 and 1, 0.5 is the median.
+	 * @return Time in milliseconds, -1 if there are no wins.
+	 */
+	public int getTimeAtPercentile(difficulty difficulty, double percentile) {
+		Index index = INDEXES[difficulty.ordinal()];
+		if (index.numWins == 0) {
+			return -1;
+		}
+		int rank = (int) Math.ceil(percentile * index.numWins) - 1;
+		return index.winTimes[Math.max(0, Math.min(rank, index.numWins - 1))];
+	}
+
+	/*
+	 * Reads every complete record in the file into the indexes. A partly written last record, left by a crash
+	 * while recording, is cut off the file so the next record is appended where it belongs.
+	 */
+	private void load() {
+		if (!FILE.exists()) {
+			return;
+		}
+		long numRecords = 0;
+		boolean hasReachedEnd = false;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FILE)))) {
+			while (true) {
+				int difficulty = in.readUnsignedByte();
+				boolean hasWon = in.readBoolean();
+				in.readLong();  // seed
+				int timeMillis = in.readInt();
+				in.readInt();  // clicks
+				in.readInt();  // 3BV
+				in.readLong();  // date
+
+				if (difficulty < INDEXES.length) {
+					INDEXES[difficulty].append(timeMillis, hasWon);
+				}
+				numRecords++;
+			}
+		} catch (EOFException e) {
+			hasReachedEnd = true;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		// only after reading the whole file, a read error isn't a reason to drop records
+		if (hasReachedEnd && FILE.length() > numRecords * RECORD_SIZE) {
+			try (RandomAccessFile file = new RandomAccessFile(FILE, "rw")) {
+				file.setLength(numRecords * RECORD_SIZE);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		// winning times are appended unsorted while loading, so sort once at the end
+		for (Index index : INDEXES) {
+			Arrays.sort(index.winTimes, 0, index.numWins);
+		}
+	}
+
+	/*
+	 * Gets the index of the first time in a sorted array that is greater than the key.
+	 */
+	private static int upperBound(int[] times, int length, int key) {
+		int low = 0;
+		int high = length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (times[mid] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/*
+	 * In memory index for one difficulty: sorted winning times and a running count of wins in play order.
+	 */
+	private static class Index {
+		private int[] winTimes = new int[16];  // sorted once loaded
+		private int[] winsBefore = new int[17];  // winsBefore[i] is the number of wins in the first i games
+		private int numGames;
+		private int numWins;
+
+		/*
+		 * Adds a game while keeping the winning times sorted.
+		 */
+		private void add(int timeMillis, boolean hasWon) {
+			append(timeMillis, hasWon);
+			if (hasWon) {
+				int position = upperBound(winTimes, numWins - 1, timeMillis);
+				System.arraycopy(winTimes, position, winTimes, position + 1, numWins - 1 - position);
+				winTimes[position] = timeMillis;
+			}
+		}
+
+		/*
+		 * Adds a game to the end of the index without sorting.
+		 */
+		private void append(int timeMillis, boolean hasWon) {
+			if (numGames + 1 == winsBefore.length) {
+				winsBefore = Arrays.copyOf(winsBefore, winsBefore.length * 2);
+			}
+			if (hasWon) {
+				if (numWins == winTimes.length) {
+					winTimes = Arrays.copyOf(winTimes, winTimes.length * 2);
+				}
+				winTimes[numWins] = timeMillis;
+				numWins++;
+			}
+			numGames++;
+			winsBefore[numGames] = numWins;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the spectator stream at bot speed: a bot plays random games while a FrameEncoder streams them, then
+ * the bytes per move and encoder throughput are printed. The stream is decoded afterwards and checked against
+ * every game's final board, once from the start and once joining in the middle of a game like a late spectator.
+ * Usage: java StreamBenchmark [rows] [cols] [mines] [games] [keyframe interval]
+ * @author Jason Wu
+ *
+ */
+public class StreamBenchmark {
+
+	/**
+	 * Runs the benchmark.
+	 * @param args Optional rows, columns, mines, number of games, and keyframe interval.
+	 * @throws IOException If decoding the stream fails.
+	 */
+	public static void main(String[] args) throws IOException {
+		int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int numCols = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		int numMines = args.length > 2 ? Integer.parseInt(args[2]) : 99;
+		int numGames = args.length > 3 ? Integer.parseInt(args[3]) : 20000;
+		int keyframeInterval = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MinesweeperModel model = new MinesweeperModel();
+		FrameEncoder encoder = new FrameEncoder(model, out, keyframeInterval);
+		Random random = new Random(1);
+		byte[][] finalBoards = new byte[numGames][];
+		int[] frameCounts = new int[numGames];
+		int joinGame = numGames / 2;  // a second spectator joins right after this game's first keyframe
+		int joinOffset = 0;
+		long numMoves = 0;
+
+		long start = System.nanoTime();
+		for (int game = 0; game < numGames; game++) {
+			model.setMineField(new Minefield(numRows, numCols, numMines));
+			model.setSeed(random.nextLong());
+			encoder.writeKeyframe();
+			long framesBefore = encoder.getNumFrames();
+			if (game == joinGame) {
+				joinOffset = out.size();
+			}
+
+			while (model.getGameState() == gameState.PLAYING) {
+				int row = random.nextInt(numRows);
+				int col = random.nextInt(numCols);
+				if (!model.isMineFieldGenerated()) {
+					model.generateMineField(row, col);
+					model.generateNumField();
+					model.reveal(row, col);
+				} else if (random.nextInt(8) == 0) {
+					model.placeFlag(row, col);
+				} else {
+					model.reveal(row, col);
+				}
+				numMoves++;
+			}
+			model.revealAllMines();
+
+			finalBoards[game] = model.getMineField().getCodes();
+			frameCounts[game] = (int) (encoder.getNumFrames() - framesBefore);
+		}
+		double totalTime = (System.nanoTime() - start) / 1e9;
+		encoder.close();
+
+		double encodeTime = encoder.getEncodeTime() / 1e9;
+		System.out.printf("%d games, %d moves, %d frames, %d bytes%n", numGames, numMoves, encoder.getNumFrames(),
+				encoder.getBytesWritten());
+		System.out.printf("%.1f bytes per move (full board is %d cells)%n",
+				(double) encoder.getBytesWritten() / numMoves, numRows * numCols);
+		System.out.printf("encoder: %.0f frames/s, %.1f MB/s, %.1f%% of play time%n",
+				encoder.getNumFrames() / encodeTime, encoder.getBytesWritten() / encodeTime / 1e6,
+				100 * encodeTime / totalTime);
+
+		// play the stream back and check that spectators saw every game end the way it did
+		byte[] stream = out.toByteArray();
+		FrameDecoder decoder = new FrameDecoder(new ByteArrayInputStream(stream));
+		for (int game = 0; game < numGames; game++) {
+			checkGame(decoder, game, frameCounts[game] + 1, finalBoards[game]);
+		}
+		System.out.println("decoded stream matches every game");
+
+		// a spectator joining mid-game skips deltas until a keyframe, and is in sync by the next game
+		decoder = new FrameDecoder(new ByteArrayInputStream(stream, joinOffset, stream.length - joinOffset));
+		for (int frame = 0; frame < frameCounts[joinGame]; frame++) {
+			decoder.readFrame();
+		}
+		for (int game = joinGame + 1; game < numGames; game++) {
+			checkGame(decoder, game, frameCounts[game] + 1, finalBoards[game]);
+		}
+		System.out.println("decoding from the middle of game " + joinGame + " matches every later game");
+	}
+
+	/*
+	 * Reads one game's frames and checks the board a spectator ends up seeing.
+	 */
+	private static void checkGame(FrameDecoder decoder, int game, int numFrames, byte[] finalBoard)
+			throws IOException {
+		for (int frame = 0; frame < numFrames; frame++) {
+			if (!decoder.readFrame()) {
+				throw new IllegalStateException("Stream ends during game " + game);
+			}
+		}
+		if (!Arrays.equals(finalBoard, decoder.getCodes())) {
+			throw new IllegalStateException("Decoded board of game " + game + " differs");
+		}
+	}
+}
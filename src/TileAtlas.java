@@ -0,0 +1,220 @@
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+import javax.swing.Icon;
+
+/**
+ * Tile atlas that prerenders every cell graphic (hidden, flag, mine, and the digits 0-8) at the current
+ * cell size into a single image, so painting a cell is one image copy instead of font layout and icon scaling.
+ * @author Jason Wu
+ *
+ */
+public final class TileAtlas {
+	private static final int MINE_TILE = 9;
+	private static final int HIDDEN_TILE = 10;
+	private static final int FLAG_TILE = 11;
+	private static final int NUM_TILES = 12;
+
+	private static final Color[] DIGIT_COLORS = {
+			null, Color.BLUE, Color.GREEN, Color.RED, new Color(128, 0, 255),
+			new Color(128, 0, 0), new Color(0, 128, 128), Color.BLACK, Color.GRAY
+	};
+
+	private final Image FLAG_IMAGE;
+	private final Image MINE_IMAGE;
+	private final Tile[] TILES;
+
+	private BufferedImage atlas;
+	private int cellSize;
+
+	/**
+	 * Constructs the atlas from the source flag and mine images, rendered at the specified cell size.
+	 * @param flagImage Source image for flags, may be null.
+	 * @param mineImage Source image for mines, may be null.
+	 * @param cellSize Width and height of a cell in pixels.
+	 */
+	public TileAtlas(Image flagImage, Image mineImage, int cellSize) {
+		FLAG_IMAGE = flagImage;
+		MINE_IMAGE = mineImage;
+
+		TILES = new Tile[NUM_TILES];
+		for (int i = 0; i < NUM_TILES; i++) {
+			TILES[i] = new Tile(i);
+		}
+
+		setCellSize(cellSize);
+	}
+
+	/**
+	 * Gets the current cell size.
+	 * @return Width and height of a cell in pixels.
+	 */
+	public int getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Re-renders the atlas at a new cell size, does nothing if the size hasn't changed.
+	 * Icons handed out earlier stay valid and draw at the new size.
+	 * @param cellSize Width and height of a cell in pixels.
+	 */
+	public void setCellSize(int cellSize) {
+		cellSize = Math.max(cellSize, 1);
+		if (atlas != null && cellSize == this.cellSize) {
+			return;
+		}
+		this.cellSize = cellSize;
+
+		atlas = createImage(cellSize * NUM_TILES, cellSize);
+		Graphics2D g = atlas.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+		Font font = new Font(Font.SANS_SERIF, Font.BOLD, Math.max(cellSize * 3 / 5, 1));
+		g.setFont(font);
+		FontMetrics metrics = g.getFontMetrics();
+
+		for (int digit = 0; digit <= 8; digit++) {
+			int x = digit * cellSize;
+			drawRevealed(g, x);
+			if (digit > 0) {
+				String text = Integer.toString(digit);
+				g.setColor(DIGIT_COLORS[digit]);
+				g.drawString(text, x + (cellSize - metrics.stringWidth(text)) / 2,
+						(cellSize - metrics.getHeight()) / 2 + metrics.getAscent());
+			}
+		}
+		drawHidden(g, MINE_TILE * cellSize);
+		drawImage(g, MINE_TILE * cellSize, MINE_IMAGE);
+		drawHidden(g, HIDDEN_TILE * cellSize);
+		drawHidden(g, FLAG_TILE * cellSize);
+		drawImage(g, FLAG_TILE * cellSize, FLAG_IMAGE);
+
+		g.dispose();
+	}
+
+	/**
+	 * Gets the icon for a cell state.
+	 * @param state State of the cell.
+	 * @param digit Number of neighboring mines, only used for revealed cells.
+	 * @return Icon that draws the matching tile.
+	 */
+	public Icon getIcon(buttonState state, int digit) {
+		return TILES[getTileIndex(state, digit)];
+	}
+
+	/**
+	 * Draws the tile for a cell state directly onto a graphics context.
+	 * @param g Graphics to draw on.
+	 * @param state State of the cell.
+	 * @param digit Number of neighboring mines, only used for revealed cells.
+	 * @param x Left edge of the cell.
+	 * @param y Top edge of the cell.
+	 */
+	public void drawTile(Graphics g, buttonState state, int digit, int x, int y) {
+		int sx = getTileIndex(state, digit) * cellSize;
+		g.drawImage(atlas, x, y, x + cellSize, y + cellSize, sx, 0, sx + cellSize, cellSize, null);
+	}
+
+	/*
+	 * Maps a cell state to its position in the atlas.
+	 */
+	private static int getTileIndex(buttonState state, int digit) {
+		switch (state) {
+		case REVEALED:
+			return digit;
+		case MINE:
+			return MINE_TILE;
+		case FLAG:
+			return FLAG_TILE;
+		default:
+			return HIDDEN_TILE;
+		}
+	}
+
+	/*
+	 * Creates an image in the screen's native format when there is a screen, or a plain image when headless.
+	 */
+	private static BufferedImage createImage(int width, int height) {
+		if (GraphicsEnvironment.isHeadless()) {
+			return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		}
+		return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+				.createCompatibleImage(width, height, Transparency.OPAQUE);
+	}
+
+	/*
+	 * Draws a raised light gray square, same look as the old bevel bordered buttons.
+	 */
+	private void drawHidden(Graphics2D g, int x) {
+		g.setColor(Color.LIGHT_GRAY);
+		g.fillRect(x, 0, cellSize, cellSize);
+		g.setColor(Color.WHITE);
+		g.drawLine(x, 0, x + cellSize - 1, 0);
+		g.drawLine(x, 0, x, cellSize - 1);
+		g.setColor(Color.GRAY);
+		g.drawLine(x, cellSize - 1, x + cellSize - 1, cellSize - 1);
+		g.drawLine(x + cellSize - 1, 0, x + cellSize - 1, cellSize - 1);
+	}
+
+	/*
+	 * Draws a flat white square with a light gray outline.
+	 */
+	private void drawRevealed(Graphics2D g, int x) {
+		g.setColor(Color.WHITE);
+		g.fillRect(x, 0, cellSize, cellSize);
+		g.setColor(Color.LIGHT_GRAY);
+		g.drawRect(x, 0, cellSize - 1, cellSize - 1);
+	}
+
+	/*
+	 * Scales an image into the tile, keeping a small margin and the aspect ratio.
+	 */
+	private void drawImage(Graphics2D g, int x, Image image) {
+		if (image == null || image.getWidth(null) <= 0 || image.getHeight(null) <= 0) {
+			return;
+		}
+		int size = cellSize * 3 / 4;
+		int width = image.getWidth(null);
+		int height = image.getHeight(null);
+		int drawWidth = width >= height ? size : size * width / height;
+		int drawHeight = height >= width ? size : size * height / width;
+		g.drawImage(image, x + (cellSize - drawWidth) / 2, (cellSize - drawHeight) / 2, drawWidth, drawHeight, null);
+	}
+
+	/*
+	 * Icon that copies one tile out of the atlas, always at the atlas' current size.
+	 */
+	private class Tile implements Icon {
+		private final int INDEX;
+
+		private Tile(int index) {
+			INDEX = index;
+		}
+
+		@Override
+		public void paintIcon(Component c, Graphics g, int x, int y) {
+			int sx = INDEX * cellSize;
+			g.drawImage(atlas, x, y, x + cellSize, y + cellSize, sx, 0, sx + cellSize, cellSize, null);
+		}
+
+		@Override
+		public int getIconWidth() {
+			return cellSize;
+		}
+
+		@Override
+		public int getIconHeight() {
+			return cellSize;
+		}
+	}
+}
@@ -0,0 +1,296 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Tournament mode that hosts many independent games at once, for bots or classroom events.
+ * Moves are queued per game and run on virtual threads, each game gets a limited number of moves per turn so
+ * busy games can't starve quiet ones, and only a limited number of games keep their cells in memory.
+ * @author Jason Wu
+ *
+ */
+public class TournamentHost implements AutoCloseable {
+	private final int MAX_RESIDENT_GAMES;
+	private final int MOVES_PER_TURN;
+
+	private final ExecutorService EXECUTOR;
+	private final ArrayList<TournamentGame> GAMES;
+	private final LinkedHashSet<TournamentGame> RESIDENT_GAMES;  // least recently used first
+
+	private final AtomicLong NUM_MOVES;
+	private final long START_TIME;
+
+	/**
+	 * Constructs a tournament with no games.
+	 * @param maxResidentGames Most games that keep their mine field in memory, the rest are packed.
+	 * @param movesPerTurn Most moves a game makes before letting other games run.
+	 */
+	public TournamentHost(int maxResidentGames, int movesPerTurn) {
+		MAX_RESIDENT_GAMES = Math.max(maxResidentGames, 1);
+		MOVES_PER_TURN = Math.max(movesPerTurn, 1);
+
+		EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+		GAMES = new ArrayList<TournamentGame>();
+		RESIDENT_GAMES = new LinkedHashSet<TournamentGame>();
+
+		NUM_MOVES = new AtomicLong();
+		START_TIME = System.nanoTime();
+	}
+
+	/**
+	 * Adds a new game to the tournament.
+	 * @param difficulty Difficulty of the game.
+	 * @param seed Seed the mines are placed with, the same seed gives every player the same board.
+	 * @return Id of the game.
+	 */
+	public int addGame(difficulty difficulty, long seed) {
+		return addGame(difficulty, seed, new UniformMineGenerator());
+	}
+
+	/**
+	 * Adds a new game to the tournament with its own way of placing mines.
+	 * @param difficulty Difficulty of the game.
+	 * @param seed Seed the mines are placed with, the same seed gives every player the same board.
+	 * @param generator Generator that places the mines, shared generators are fine.
+	 * @return Id of the game.
+	 */
+	public int addGame(difficulty difficulty, long seed, MineGenerator generator) {
+		MinesweeperModel model = new MinesweeperModel();
+		model.setMineField(difficulty);
+		model.setSeed(seed);
+		model.setGenerator(generator);
+
+		synchronized (GAMES) {
+			TournamentGame game = new TournamentGame(model);
+			GAMES.add(game);
+			return GAMES.size() - 1;
+		}
+	}
+
+	/**
+	 * Gets the number of games in the tournament.
+	 * @return Number of games.
+	 */
+	public int getNumGames() {
+		synchronized (GAMES) {
+			return GAMES.size();
+		}
+	}
+
+	/**
+	 * Queues a move for a game. The first reveal of a game places the mines, the same as the first click.
+	 * @param gameId Id of the game.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 * @param isFlag True to place or remove a flag, false to reveal.
+	 * @return Completes with the game state after the move is made.
+	 */
+	public CompletableFuture<gameState> submit(int gameId, int row, int col, boolean isFlag) {
+		TournamentGame game = getGame(gameId);
+		Move move = new Move(row, col, isFlag);
+		game.moves.add(move);
+		schedule(game);
+		return move.result;
+	}
+
+	/**
+	 * Runs code with a game's model, for bots that need to look at the board. The game is locked meanwhile.
+	 * @param gameId Id of the game.
+	 * @param reader Code to run with the model, it should not keep the model after returning.
+	 */
+	public void inspect(int gameId, Consumer<MinesweeperModel> reader) {
+		TournamentGame game = getGame(gameId);
+		game.lock.lock();
+		try {
+			pageIn(game);
+			reader.accept(game.model);
+		} finally {
+			game.lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the total number of moves made across every game.
+	 * @return Number of moves.
+	 */
+	public long getNumMoves() {
+		return NUM_MOVES.get();
+	}
+
+	/**
+	 * Gets the number of moves made per second across every game since the tournament started.
+	 * @return Moves per second.
+	 */
+	public double getMovesPerSecond() {
+		return NUM_MOVES.get() / ((System.nanoTime() - START_TIME) / 1e9);
+	}
+
+	/**
+	 * Gets the average time a game's moves waited between being submitted and being made.
+	 * @param gameId Id of the game.
+	 * @return Average latency in milliseconds, 0 if no moves were made.
+	 */
+	public double getAverageLatencyMillis(int gameId) {
+		TournamentGame game = getGame(gameId);
+		long numMoves = game.numMoves.get();
+		return numMoves == 0 ? 0 : game.totalLatency.get() / 1e6 / numMoves;
+	}
+
+	/**
+	 * Gets the number of games that currently keep their mine field in memory.
+	 * @return Number of resident games.
+	 */
+	public int getNumResidentGames() {
+		synchronized (RESIDENT_GAMES) {
+			return RESIDENT_GAMES.size();
+		}
+	}
+
+	/**
+	 * Stops accepting turns and waits for the running ones to finish.
+	 */
+	@Override
+	public void close() {
+		EXECUTOR.close();
+	}
+
+	/*
+	 * Gets a game by id.
+	 */
+	private TournamentGame getGame(int gameId) {
+		synchronized (GAMES) {
+			return GAMES.get(gameId);
+		}
+	}
+
+	/*
+	 * Starts a turn for the game unless one is already queued or running, so a game never runs on two threads.
+	 */
+	private void schedule(TournamentGame game) {
+		if (game.isScheduled.compareAndSet(false, true)) {
+			EXECUTOR.execute(new Runnable() {
+				public void run() {
+					runTurn(game);
+				}
+			});
+		}
+	}
+
+	/*
+	 * Makes up to MOVES_PER_TURN of a game's queued moves, then goes to the back of the line if more are left.
+	 */
+	private void runTurn(TournamentGame game) {
+		game.lock.lock();
+		try {
+			pageIn(game);
+
+			Move move;
+			for (int i = 0; i < MOVES_PER_TURN && (move = game.moves.poll()) != null; i++) {
+				try {
+					move.result.complete(makeMove(game.model, move));
+				} catch (RuntimeException e) {
+					// a bad move (e.g. off the board) only fails that move
+					move.result.completeExceptionally(e);
+				}
+				game.totalLatency.addAndGet(System.nanoTime() - move.submitTime);
+				game.numMoves.incrementAndGet();
+				NUM_MOVES.incrementAndGet();
+			}
+		} finally {
+			game.lock.unlock();
+		}
+
+		game.isScheduled.set(false);
+		if (!game.moves.isEmpty()) {
+			schedule(game);
+		}
+	}
+
+	/*
+	 * Applies one move to a model, the same way the controller handles a click.
+	 */
+	private static gameState makeMove(MinesweeperModel model, Move move) {
+		if (model.getGameState() != gameState.PLAYING) {
+			return model.getGameState();
+		}
+		if (move.isFlag) {
+			model.placeFlag(move.row, move.col);
+		} else {
+			if (!model.isMineFieldGenerated()) {
+				model.generateMineField(move.row, move.col);
+				model.generateNumField();
+				model.startTimer();
+			}
+			model.reveal(move.row, move.col);
+		}
+		return model.getGameState();
+	}
+
+	/*
+	 * Makes sure a game's mine field is in memory, paging out the least recently used idle games if over budget.
+	 * Must be called while holding the game's lock.
+	 */
+	private void pageIn(TournamentGame game) {
+		synchronized (RESIDENT_GAMES) {
+			RESIDENT_GAMES.remove(game);
+			RESIDENT_GAMES.add(game);  // most recently used goes last
+
+			Iterator<TournamentGame> iterator = RESIDENT_GAMES.iterator();
+			while (RESIDENT_GAMES.size() > MAX_RESIDENT_GAMES && iterator.hasNext()) {
+				TournamentGame oldest = iterator.next();
+				// games that are running right now are skipped, they'll be paged out later
+				if (oldest != game && oldest.lock.tryLock()) {
+					try {
+						oldest.model.pageOut();
+						iterator.remove();
+					} finally {
+						oldest.lock.unlock();
+					}
+				}
+			}
+		}
+		game.model.pageIn();
+	}
+
+	/*
+	 * A game in the tournament and its queue of moves.
+	 */
+	private static class TournamentGame {
+		private final MinesweeperModel model;
+		private final ConcurrentLinkedQueue<Move> moves = new ConcurrentLinkedQueue<Move>();
+		private final ReentrantLock lock = new ReentrantLock();
+		private final AtomicBoolean isScheduled = new AtomicBoolean();
+		private final AtomicLong numMoves = new AtomicLong();
+		private final AtomicLong totalLatency = new AtomicLong();  // nanoseconds
+
+		private TournamentGame(MinesweeperModel model) {
+			this.model = model;
+			model.pageOut();  // new games start packed until their first move
+		}
+	}
+
+	/*
+	 * A queued move.
+	 */
+	private static class Move {
+		private final int row;
+		private final int col;
+		private final boolean isFlag;
+		private final long submitTime = System.nanoTime();
+		private final CompletableFuture<gameState> result = new CompletableFuture<gameState>();
+
+		private Move(int row, int col, boolean isFlag) {
+			this.row = row;
+			this.col = col;
+			this.isFlag = isFlag;
+		}
+	}
+}
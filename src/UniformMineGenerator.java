@@ -0,0 +1,47 @@
+import java.util.Random;
+
+/**
+ * The classic layout: every cell outside the 3x3 area around the first click is equally likely to be a mine.
+ * This is what the game has always used, so a seed gives the same board it always has.
+ * @author Jason Wu
+ *
+ */
+public class UniformMineGenerator implements MineGenerator {
+
+	@Override
+	public String getName() {
+		return "uniform";
+	}
+
+	@Override
+	public void placeMines(Minefield mineField, int startingRow, int startingCol, long seed) {
+		Random rand = new Random(seed);
+		
+		int emptySquaresLeft = mineField.getNumRows() * mineField.getNumCols()- mineField.getNeighboring(startingRow, startingCol, false) - 1;  // neighboring skips the initial cell, so - 1
+		int minesLeft = mineField.getNumMines();
+		if (minesLeft > emptySquaresLeft) {
+			throw new IllegalArgumentException("No room for " + minesLeft + " mines outside the starting area");
+		}
+		int row = 0;
+		int col = 0;
+		
+		while (minesLeft > 0) {
+			// skip the 3x3 area surrounding the starting location
+			if (!(Math.abs(row - startingRow) <= 1 && Math.abs(col - startingCol) <= 1)) {
+				// minesLeft/emptySquaresLeft chance of placing a mine
+				if (rand.nextInt(emptySquaresLeft) < minesLeft) {
+					mineField.setIsMine(row, col);
+					minesLeft--;
+				}
+				emptySquaresLeft--;  // only counts squares outside the starting area
+			}
+			// increment
+			if (col == mineField.getNumCols() - 1) {
+				row++;
+				col = 0;
+			} else {
+				col++;
+			}
+		}
+	}
+}
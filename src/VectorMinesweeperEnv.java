@@ -0,0 +1,378 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Vectorized reinforcement learning environment that steps many games of the same difficulty together.
+ * Boards are stored as one array per field across every game (struct of arrays) instead of Cell objects,
+ * and stepping and observing don't allocate. Follows the same rules, actions, and rewards as MinesweeperEnv,
+ * and places mines with MinesweeperModel so a seed gives the same board in both.
+ * @author Jason Wu
+ *
+ */
+public class VectorMinesweeperEnv {
+	private static final buttonState[] BUTTON_STATES = buttonState.values();
+	private static final byte HIDDEN = (byte) buttonState.HIDDEN.ordinal();
+	private static final byte REVEALED = (byte) buttonState.REVEALED.ordinal();
+	private static final byte FLAG = (byte) buttonState.FLAG.ordinal();
+	private static final byte MINE = (byte) buttonState.MINE.ordinal();
+
+	private final difficulty DIFFICULTY;
+	private final int NUM_ENVS;
+	private final int NUM_ROWS;
+	private final int NUM_COLS;
+	private final int NUM_CELLS;
+	private final int NUM_MINES;
+	private final MinesweeperModel GENERATOR;  // only used to place mines
+
+	// one entry per cell of every game, game after game
+	private final byte[] STATES;
+	private final boolean[] MINES;
+	private final byte[] COUNTS;
+
+	// one entry per game
+	private final long[] SEEDS;
+	private final int[] NUM_SAFE_HIDDEN;
+	private final int[] NUM_FLAGS_LEFT;
+	private final boolean[] IS_GENERATED;
+	private final boolean[] HAS_LOST;
+
+	// flood reveal stack, shared since games are stepped one at a time
+	private final int[] STACK;
+	private int numRevealed;
+
+	/**
+	 * Constructs the environments, each one must be reset before its first step.
+	 * @param difficulty Difficulty of every game.
+	 * @param numEnvs Number of games stepped together.
+	 */
+	public VectorMinesweeperEnv(difficulty difficulty, int numEnvs) {
+		DIFFICULTY = difficulty;
+		NUM_ENVS = numEnvs;
+
+		GENERATOR = new MinesweeperModel();
+		GENERATOR.setMineField(difficulty);
+		NUM_ROWS = GENERATOR.getNumRows();
+		NUM_COLS = GENERATOR.getNumCols();
+		NUM_CELLS = NUM_ROWS * NUM_COLS;
+		NUM_MINES = GENERATOR.getNumFlagsLeft();
+
+		STATES = new byte[numEnvs * NUM_CELLS];
+		MINES = new boolean[numEnvs * NUM_CELLS];
+		COUNTS = new byte[numEnvs * NUM_CELLS];
+
+		SEEDS = new long[numEnvs];
+		NUM_SAFE_HIDDEN = new int[numEnvs];
+		NUM_FLAGS_LEFT = new int[numEnvs];
+		IS_GENERATED = new boolean[numEnvs];
+		HAS_LOST = new boolean[numEnvs];
+
+		STACK = new int[NUM_CELLS];
+	}
+
+	/**
+	 * Gets the number of games.
+	 * @return Number of games.
+	 */
+	public int getNumEnvs() {
+		return NUM_ENVS;
+	}
+
+	/**
+	 * Sets how mines are placed in every game generated from now on.
+	 * @param generator Generator to use, uniform by default.
+	 */
+	public void setGenerator(MineGenerator generator) {
+		GENERATOR.setGenerator(generator);
+	}
+
+	/**
+	 * Gets the number of cells in each game, observations have this many values per game.
+	 * @return Number of cells.
+	 */
+	public int getNumCells() {
+		return NUM_CELLS;
+	}
+
+	/**
+	 * Starts a new episode in one game.
+	 * @param env Index of the game.
+	 * @param seed Seed the mines are placed with.
+	 */
+	public void reset(int env, long seed) {
+		int start = env * NUM_CELLS;
+		for (int i = start; i < start + NUM_CELLS; i++) {
+			STATES[i] = HIDDEN;
+			MINES[i] = false;
+			COUNTS[i] = 0;
+		}
+		SEEDS[env] = seed;
+		NUM_SAFE_HIDDEN[env] = NUM_CELLS;
+		NUM_FLAGS_LEFT[env] = NUM_MINES;
+		IS_GENERATED[env] = false;
+		HAS_LOST[env] = false;
+	}
+
+	/**
+	 * Makes one move in every game. Games that are over ignore their action until they're reset.
+	 * @param actions Action for each game, same encoding as MinesweeperEnv.
+	 * @param rewards Filled with the reward of each game.
+	 * @param dones Filled with whether each game is over.
+	 */
+	public void step(int[] actions, float[] rewards, boolean[] dones) {
+		for (int env = 0; env < NUM_ENVS; env++) {
+			if (getGameState(env) != gameState.PLAYING) {
+				rewards[env] = 0;
+				dones[env] = true;
+				continue;
+			}
+
+			int cell = actions[env] % NUM_CELLS;
+			numRevealed = 0;
+			if (actions[env] >= NUM_CELLS) {
+				placeFlag(env, cell);
+			} else {
+				if (!IS_GENERATED[env]) {
+					generate(env, cell);
+				}
+				reveal(env, cell);
+			}
+
+			gameState state = getGameState(env);
+			if (state == gameState.LOST) {
+				rewards[env] = -1;
+			} else {
+				rewards[env] = (float) numRevealed / (NUM_CELLS - NUM_MINES) + (state == gameState.WON ? 1 : 0);
+			}
+			dones[env] = state != gameState.PLAYING;
+		}
+	}
+
+	/**
+	 * Gets the state of one game.
+	 * @param env Index of the game.
+	 * @return Won, lost, or still playing.
+	 */
+	public gameState getGameState(int env) {
+		if (HAS_LOST[env]) {
+			return gameState.LOST;
+		} else if (IS_GENERATED[env] && NUM_SAFE_HIDDEN[env] == 0) {
+			return gameState.WON;
+		} else {
+			return gameState.PLAYING;
+		}
+	}
+
+	/**
+	 * Gets the number of flags left in one game.
+	 * @param env Index of the game.
+	 * @return Number of flags left.
+	 */
+	public int getNumFlagsLeft(int env) {
+		return NUM_FLAGS_LEFT[env];
+	}
+
+	/**
+	 * Gets the state of a cell in one game.
+	 * @param env Index of the game.
+	 * @param row Row of the cell.
+	 * @param col Column of the cell.
+	 * @return State of the cell.
+	 */
+	public buttonState getState(int env, int row, int col) {
+		return BUTTON_STATES[STATES[env * NUM_CELLS + row * NUM_COLS + col]];
+	}
+
+	/**
+	 * Writes every game's visible board into an array, same values as MinesweeperEnv, game after game.
+	 * @param observation Array of at least games * cells values, reused between steps.
+	 */
+	public void observe(float[] observation) {
+		for (int i = 0; i < STATES.length; i++) {
+			byte state = STATES[i];
+			if (state == REVEALED) {
+				observation[i] = COUNTS[i] / 8f;
+			} else if (state == FLAG) {
+				observation[i] = MinesweeperEnv.FLAG;
+			} else if (state == MINE) {
+				observation[i] = MinesweeperEnv.MINE;
+			} else {
+				observation[i] = MinesweeperEnv.HIDDEN;
+			}
+		}
+	}
+
+	/**
+	 * Writes every game's visible board into a buffer as one byte per cell, coded like Minefield.getCode.
+	 * Writes from index 0 without moving the buffer's position.
+	 * @param observation Buffer with at least games * cells bytes, reused between steps.
+	 */
+	public void observe(ByteBuffer observation) {
+		for (int i = 0; i < STATES.length; i++) {
+			byte state = STATES[i];
+			if (state == REVEALED) {
+				observation.put(i, COUNTS[i]);
+			} else if (state == FLAG) {
+				observation.put(i, (byte) Minefield.FLAG_CODE);
+			} else if (state == MINE) {
+				observation.put(i, (byte) Minefield.MINE_CODE);
+			} else {
+				observation.put(i, (byte) Minefield.HIDDEN_CODE);
+			}
+		}
+	}
+
+	/*
+	 * Places the mines of one game around its first click, then counts the hidden cells without mines.
+	 */
+	private void generate(int env, int cell) {
+		GENERATOR.setMineField(DIFFICULTY);
+		GENERATOR.setSeed(SEEDS[env]);
+		GENERATOR.generateMineField(cell / NUM_COLS, cell % NUM_COLS);
+		GENERATOR.generateNumField();
+
+		Minefield mineField = GENERATOR.getMineField();
+		int start = env * NUM_CELLS;
+		NUM_SAFE_HIDDEN[env] = 0;
+		for (int i = 0; i < NUM_ROWS; i++) {
+			for (int j = 0; j < NUM_COLS; j++) {
+				int index = start + i * NUM_COLS + j;
+				MINES[index] = mineField.getIsMine(i, j);
+				COUNTS[index] = (byte) mineField.getNumNeighboringMines(i, j);
+				if (!MINES[index] && STATES[index] == HIDDEN) {
+					NUM_SAFE_HIDDEN[env]++;
+				}
+			}
+		}
+		IS_GENERATED[env] = true;
+	}
+
+	/*
+	 * Same as MinesweeperModel.placeFlag.
+	 */
+	private void placeFlag(int env, int cell) {
+		int index = env * NUM_CELLS + cell;
+		if (STATES[index] == HIDDEN) {
+			STATES[index] = FLAG;
+			NUM_FLAGS_LEFT[env]--;
+			if (!MINES[index]) {
+				NUM_SAFE_HIDDEN[env]--;
+			}
+		} else if (STATES[index] == FLAG) {
+			STATES[index] = HIDDEN;
+			NUM_FLAGS_LEFT[env]++;
+			if (!MINES[index]) {
+				NUM_SAFE_HIDDEN[env]++;
+			}
+		}
+	}
+
+	/*
+	 * Same as MinesweeperModel.reveal, including revealing around a number with enough flags.
+	 */
+	private void reveal(int env, int cell) {
+		int start = env * NUM_CELLS;
+		int index = start + cell;
+
+		if (STATES[index] == HIDDEN) {
+			revealCell(env, cell);
+		} else if (STATES[index] == REVEALED && COUNTS[index] > 0 && countNeighbors(start, cell, FLAG) == COUNTS[index]) {
+			int row = cell / NUM_COLS;
+			int col = cell % NUM_COLS;
+			for (int i = row - 1; i < row + 2; i++) {
+				for (int j = col - 1; j < col + 2; j++) {
+					if (i >= 0 && i < NUM_ROWS && j >= 0 && j < NUM_COLS && STATES[start + i * NUM_COLS + j] == HIDDEN) {
+						revealCell(env, i * NUM_COLS + j);
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Same as MinesweeperModel.revealCell.
+	 */
+	private void revealCell(int env, int cell) {
+		int index = env * NUM_CELLS + cell;
+
+		if (STATES[index] != FLAG) {
+			if (MINES[index]) {
+				STATES[index] = MINE;
+				HAS_LOST[env] = true;
+			} else if (COUNTS[index] > 0) {
+				STATES[index] = REVEALED;
+				NUM_SAFE_HIDDEN[env]--;
+				numRevealed++;
+			} else {
+				floodReveal(env, cell);
+			}
+		}
+	}
+
+	/*
+	 * Same as MinesweeperModel.floodReveal, the shared stack holds cells that still have to spread.
+	 */
+	private void floodReveal(int env, int cell) {
+		int start = env * NUM_CELLS;
+		int size = 0;
+		if (tryFlood(start, env, cell)) {
+			STACK[size++] = cell;
+		}
+
+		while (size > 0) {
+			int current = STACK[--size];
+			int row = current / NUM_COLS;
+			int col = current % NUM_COLS;
+			boolean isEmpty = COUNTS[start + current] == 0;
+
+			for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, NUM_ROWS - 1); i++) {
+				for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, NUM_COLS - 1); j++) {
+					// empty cells spread to all 8 neighbors, numbers only to empty cells beside them
+					if ((i == row) == (j == col)) {
+						if (!isEmpty || (i == row && j == col)) {
+							continue;
+						}
+					} else if (!isEmpty && COUNTS[start + i * NUM_COLS + j] != 0) {
+						continue;
+					}
+
+					if (tryFlood(start, env, i * NUM_COLS + j)) {
+						STACK[size++] = i * NUM_COLS + j;
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Reveals one cell of a flood reveal, same as MinesweeperModel.floodRevealCell.
+	 */
+	private boolean tryFlood(int start, int env, int cell) {
+		int index = start + cell;
+		if (STATES[index] == REVEALED || MINES[index]) {
+			return false;
+		}
+		if (STATES[index] == HIDDEN) {
+			NUM_SAFE_HIDDEN[env]--;
+		}
+		STATES[index] = REVEALED;
+		numRevealed++;
+		return true;
+	}
+
+	/*
+	 * Counts the neighboring cells in a state.
+	 */
+	private int countNeighbors(int start, int cell, byte state) {
+		int row = cell / NUM_COLS;
+		int col = cell % NUM_COLS;
+		int count = 0;
+		for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, NUM_ROWS - 1); i++) {
+			for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, NUM_COLS - 1); j++) {
+				int index = start + i * NUM_COLS + j;
+				if (!(i == row && j == col) && STATES[index] == state) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+}
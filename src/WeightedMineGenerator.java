@@ -0,0 +1,73 @@
+import java.util.Random;
+
+/**
+ * Base for layouts where some cells are more likely to be mines than others. Subclasses give every cell a
+ * weight, and mines are placed by picking random cells and keeping each with a chance proportional to its
+ * weight, so a cell twice as heavy is about twice as likely to be a mine. Cells with weight 0 are never mines.
+ * @author Jason Wu
+ *
+ */
+public abstract class WeightedMineGenerator implements MineGenerator {
+
+	@Override
+	public void placeMines(Minefield mineField, int startingRow, int startingCol, long seed) {
+		Random random = new Random(seed);
+		int numRows = mineField.getNumRows();
+		int numCols = mineField.getNumCols();
+		int numCells = numRows * numCols;
+		float[] weights = getWeights(numRows, numCols, mineField.getNumMines(), startingRow, startingCol, random);
+
+		int numAllowed = 0;
+		float maxWeight = 0;
+		for (int i = 0; i < numCells; i++) {
+			if (weights[i] > 0) {
+				numAllowed++;
+				maxWeight = Math.max(maxWeight, weights[i]);
+			}
+		}
+		int minesLeft = mineField.getNumMines();
+		if (minesLeft > numAllowed) {
+			throw new IllegalArgumentException("No room for " + minesLeft + " mines outside the " + (numCells - numAllowed)
+					+ " safe cells");
+		}
+
+		// a mine's weight is set to 0 once it's placed, so it can't be picked twice
+		while (minesLeft > 0) {
+			int cell = random.nextInt(numCells);
+			if (weights[cell] > 0 && random.nextFloat() * maxWeight < weights[cell]) {
+				mineField.setIsMine(cell / numCols, cell % numCols);
+				weights[cell] = 0;
+				minesLeft--;
+			}
+		}
+	}
+
+	/**
+	 * Gets the weight of every cell of a new board, row by row. The first click and usually its neighbors must be 0.
+	 * @param numRows Number of rows.
+	 * @param numCols Number of columns.
+	 * @param numMines Number of mines that will be placed, at most this many cells can be left with a weight.
+	 * @param startingRow The row where the first click happened.
+	 * @param startingCol The column where the first click happened.
+	 * @param random Random numbers for this board only.
+	 * @return New array of weights, none negative.
+	 */
+	protected abstract float[] getWeights(int numRows, int numCols, int numMines, int startingRow, int startingCol,
+			Random random);
+
+	/**
+	 * Sets the weight of the 3x3 area around the first click to 0.
+	 * @param weights Weights row by row.
+	 * @param numRows Number of rows.
+	 * @param numCols Number of columns.
+	 * @param startingRow The row where the first click happened.
+	 * @param startingCol The column where the first click happened.
+	 */
+	protected static void clearStartingArea(float[] weights, int numRows, int numCols, int startingRow, int startingCol) {
+		for (int i = Math.max(startingRow - 1, 0); i <= Math.min(startingRow + 1, numRows - 1); i++) {
+			for (int j = Math.max(startingCol - 1, 0); j <= Math.min(startingCol + 1, numCols - 1); j++) {
+				weights[i * numCols + j] = 0;
+			}
+		}
+	}
+}
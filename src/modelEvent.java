@@ -0,0 +1,3 @@
+public enum modelEvent {
+	CELL_REVEALED, FLAGGED, UNFLAGGED, MINE_HIT, MINE_REVEALED, GAME_WON
+}